@@ -0,0 +1,94 @@
+package com.mine.gallery.persistence.repository;
+
+import com.mine.gallery.persistence.storage.LocalFileStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ImageStorageRepository#saveImage}, the write of the upload plus the thumbnail generation,
+ * for a small, a full HD and a 12 megapixel JPEG. The thumbnail runs on the calling thread,
+ * so the numbers don't include the hand-off to the image processing executor.
+ *
+ * @author TrusTio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class ImageStorageBenchmark {
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    private Path storage;
+    private ThreadPoolTaskExecutor storageIoExecutor;
+    private ImageStorageRepository repository;
+    private byte[] content;
+    private int counter;
+
+    @Setup
+    public void setUp() throws IOException {
+        // the repository stores the images under the working directory
+        storage = Files.createTempDirectory("gallery-benchmark");
+        System.setProperty("user.dir", storage.toString());
+        storageIoExecutor = new ThreadPoolTaskExecutor();
+        storageIoExecutor.initialize();
+        repository = new ImageStorageRepository(storageIoExecutor, Runnable::run, new LocalFileStore(),
+                new SimpleMeterRegistry());
+
+        String[] dimensions = size.split("x");
+        content = jpeg(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storageIoExecutor.shutdown();
+        FileSystemUtils.deleteRecursively(storage);
+    }
+
+    @Benchmark
+    public String saveImage() {
+        return repository.saveImage(content, "/benchmark/" + (counter++ % 16) + ".jpg");
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.WHITE);
+        for (int i = 0; i < 50; i++) {
+            graphics.drawOval(i * width / 50, i * height / 50, width / 4, height / 4);
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,111 @@
+package com.mine.gallery.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.mine.gallery.security.SecurityConstants.EXPIRATION_TIME;
+import static com.mine.gallery.security.SecurityConstants.SECRET;
+import static com.mine.gallery.security.SecurityConstants.SIGNING_KEY;
+
+/**
+ * Per-request cost of authenticating a token in the {@link AuthorizationFilter}:
+ * full verification with the key bytes on every call (the old behaviour),
+ * full verification with the precomputed key, and a hit in the {@link TokenAuthenticationCache}.
+ * The authenticate benchmarks run the whole {@link AuthorizationFilter#getAuthentication},
+ * including the revocation check, with a cache that never holds the token and with a warm one.
+ *
+ * @author TrusTio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class TokenVerificationBenchmark {
+    private String token;
+    private TokenAuthenticationCache cache;
+    private AuthorizationFilter uncachedFilter;
+    private AuthorizationFilter cachedFilter;
+
+    @Setup
+    public void setUp() {
+        Claims claims = Jwts.claims().setSubject("benchmark");
+        claims.put("roles", Arrays.asList("ROLE_USER", "ROLE_ADMIN"));
+        claims.put("id", 42L);
+        Date expiration = new Date(System.currentTimeMillis() + EXPIRATION_TIME);
+
+        token = " " + Jwts.builder()
+                .setHeaderParam("typ", "JWT")
+                .setClaims(claims)
+                .setExpiration(expiration)
+                .signWith(SignatureAlgorithm.HS512, SIGNING_KEY)
+                .compact();
+
+        cache = new TokenAuthenticationCache(10_000);
+        cache.put(token, new IdUsernamePasswordAuthenticationToken(42L, "benchmark", 42L,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))), expiration);
+
+        uncachedFilter = filter(new TokenAuthenticationCache(0));
+        cachedFilter = filter(new TokenAuthenticationCache(10_000));
+        cachedFilter.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Claims parseWithSecretBytes() {
+        return Jwts.parser()
+                .setSigningKey(SECRET.getBytes())
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public Claims parseWithSigningKey() {
+        return Jwts.parser()
+                .setSigningKey(SIGNING_KEY)
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public IdUsernamePasswordAuthenticationToken cachedAuthentication() {
+        return cache.get(token);
+    }
+
+    @Benchmark
+    public IdUsernamePasswordAuthenticationToken authenticateUncached() {
+        return uncachedFilter.getAuthentication(token);
+    }
+
+    @Benchmark
+    public IdUsernamePasswordAuthenticationToken authenticateCached() {
+        return cachedFilter.getAuthentication(token);
+    }
+
+    /**
+     * The revocation store is only checked in memory, so it doesn't need the repository.
+     */
+    private static AuthorizationFilter filter(TokenAuthenticationCache cache) {
+        TokenRevocationStore revocationStore = new TokenRevocationStore(null, null, cache, 10_000, 0.01, 60);
+        return new AuthorizationFilter(authentication -> authentication, cache, revocationStore,
+                new SimpleMeterRegistry());
+    }
+}
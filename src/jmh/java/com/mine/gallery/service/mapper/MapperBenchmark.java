@@ -0,0 +1,72 @@
+package com.mine.gallery.service.mapper;
+
+import com.mine.gallery.persistence.entity.Gallery;
+import com.mine.gallery.persistence.entity.Image;
+import com.mine.gallery.persistence.entity.User;
+import com.mine.gallery.security.ImageUrlSigner;
+import com.mine.gallery.service.dto.ImageDTO;
+import com.mine.gallery.service.dto.UserGalleriesDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-item cost of mapping the listings, dominated by signing the image urls.
+ * An image gets two signed urls, a gallery one for its cover.
+ *
+ * @author TrusTio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class MapperBenchmark {
+    private ImageUrlSigner signer;
+    private Image image;
+    private Gallery gallery;
+
+    @Setup
+    public void setUp() {
+        signer = new ImageUrlSigner("benchmark-key", "http://localhost:8080",
+                Duration.ofHours(1), Duration.ofMinutes(15));
+
+        User user = new User().setId(42L).setUsername("benchmark");
+        gallery = new Gallery()
+                .setId(7L)
+                .setName("holidays")
+                .setUser(user)
+                .setImageCount(120)
+                .setTotalBytes(300_000_000L)
+                .setLastUpdated(LocalDateTime.now());
+        image = new Image()
+                .setId(1234L)
+                .setName("beach.jpg")
+                .setLocation("/42/5f0e8a9c-52a4-4c1e-9f4e-0b8a6c3d2e1f.jpg")
+                .setFileSize(2_500_000L)
+                .setGallery(gallery);
+        gallery.setCoverImage(image);
+    }
+
+    @Benchmark
+    public ImageDTO toImageDTO() {
+        return ImageMapper.toImageDTO(image, signer);
+    }
+
+    @Benchmark
+    public UserGalleriesDTO toUserGalleriesDTO() {
+        return GalleryMapper.toUserGalleriesDTO(gallery, signer);
+    }
+}
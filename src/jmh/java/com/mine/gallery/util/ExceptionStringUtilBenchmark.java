@@ -0,0 +1,60 @@
+package com.mine.gallery.util;
+
+import com.mine.gallery.service.dto.SignupUserDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the message of a rejected sign up with {@link ExceptionStringUtil#exceptionMessageBuilder},
+ * for a form where every field is invalid.
+ *
+ * @author TrusTio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class ExceptionStringUtilBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Errors errors;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        SignupUserDTO user = new SignupUserDTO()
+                .setUsername("x")
+                .setEmail("not an email")
+                .setPassword("abc");
+
+        errors = new BeanPropertyBindingResult(user, "signupUserDTO");
+        new SpringValidatorAdapter(validatorFactory.getValidator()).validate(user, errors);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public String exceptionMessageBuilder() {
+        return ExceptionStringUtil.exceptionMessageBuilder(errors);
+    }
+}
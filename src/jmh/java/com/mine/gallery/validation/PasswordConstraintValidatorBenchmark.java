@@ -0,0 +1,67 @@
+package com.mine.gallery.validation;
+
+import com.mine.gallery.service.dto.SignupUserDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the password rules checked on sign up: a valid password through
+ * {@link PasswordConstraintValidator#isValid} directly, and an invalid one through the bean validation
+ * of the sign up form, which also builds the violation message.
+ *
+ * @author TrusTio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class PasswordConstraintValidatorBenchmark {
+    private PasswordConstraintValidator passwordValidator;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private SignupUserDTO invalidUser;
+
+    @Setup
+    public void setUp() {
+        passwordValidator = new PasswordConstraintValidator();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        invalidUser = new SignupUserDTO()
+                .setUsername("benchmark")
+                .setEmail("benchmark@mail.com")
+                .setPassword("abcd1234");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean validPassword() {
+        return passwordValidator.isValid("Benchmark!92x", null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<SignupUserDTO>> invalidPassword() {
+        return validator.validateProperty(invalidUser, "password");
+    }
+}
@@ -0,0 +1,115 @@
+package com.mine.gallery.load;
+
+import com.mine.gallery.service.dto.ImageDTO;
+import com.mine.gallery.service.dto.SignupUserDTO;
+import com.mine.gallery.service.dto.UserGalleriesDTO;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Client of the gallery REST API used by the load test workers. It shares a pool of keep-alive
+ * connections between the workers, like a fleet of clients behind a proxy would.
+ * Error responses are thrown as {@link org.springframework.web.client.RestClientResponseException}.
+ *
+ * @author TrusTio
+ */
+class GalleryClient implements AutoCloseable {
+    private final String baseUrl;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+
+    GalleryClient(String baseUrl, int connections) {
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClientBuilder.create()
+                .setMaxConnTotal(connections)
+                .setMaxConnPerRoute(connections)
+                .disableCookieManagement()
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    /**
+     * Logs in through /login.
+     *
+     * @return String Authorization header value with the token
+     */
+    String login(String username, String password) {
+        SignupUserDTO credentials = new SignupUserDTO().setUsername(username).setPassword(password);
+        return restTemplate.postForEntity(baseUrl + "/login", credentials, String.class)
+                .getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+    }
+
+    List<UserGalleriesDTO> getGalleries(String token, long userId) {
+        return Arrays.asList(restTemplate.exchange(baseUrl + "/api/v1/users/{userId}/galleries", HttpMethod.GET,
+                authorized(token, null), UserGalleriesDTO[].class, userId).getBody());
+    }
+
+    List<ImageDTO> getGalleryImages(String token, long userId, long galleryId, int pageNo, int pageSize) {
+        return Arrays.asList(restTemplate.exchange(
+                baseUrl + "/api/v1/users/{userId}/galleries/{galleryId}?pageNo={pageNo}&pageSize={pageSize}",
+                HttpMethod.GET, authorized(token, null), ImageDTO[].class, userId, galleryId, pageNo, pageSize)
+                .getBody());
+    }
+
+    /**
+     * Downloads a signed image url, reading the body without keeping it.
+     *
+     * @param url String signed url of an image or a thumbnail
+     * @return long number of bytes read
+     */
+    long download(String url) {
+        return restTemplate.execute(URI.create(url), HttpMethod.GET, null,
+                response -> StreamUtils.drain(response.getBody()));
+    }
+
+    void upload(String token, long galleryId, String name, SyntheticImages.SyntheticImage image) {
+        HttpHeaders partHeaders = new HttpHeaders();
+        partHeaders.setContentType(MediaType.parseMediaType(image.getContentType()));
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("imageFile", new HttpEntity<>(new ByteArrayResource(image.getContent()) {
+            @Override
+            public String getFilename() {
+                return name;
+            }
+        }, partHeaders));
+        body.add("galleryId", String.valueOf(galleryId));
+
+        restTemplate.exchange(baseUrl + "/api/v1/image", HttpMethod.POST, authorized(token, body), String.class);
+    }
+
+    void rename(String token, long userId, long galleryId, String name, String newName) {
+        restTemplate.exchange(baseUrl + "/api/v1/image/{userId}/{galleryId}/{name}?newImageName={newName}",
+                HttpMethod.PATCH, authorized(token, null), String.class, userId, galleryId, name, newName);
+    }
+
+    void delete(String token, long userId, long galleryId, String name) {
+        restTemplate.exchange(baseUrl + "/api/v1/image/{userId}/{galleryId}/{name}", HttpMethod.DELETE,
+                authorized(token, null), String.class, userId, galleryId, name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private static <T> HttpEntity<T> authorized(String token, T body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, token);
+        return new HttpEntity<>(body, headers);
+    }
+}
@@ -0,0 +1,126 @@
+package com.mine.gallery.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency of every operation of the load test in an HdrHistogram, in microseconds,
+ * and the number of failed ones. Failed operations are recorded too, so that a server answering
+ * errors quickly doesn't look faster than a healthy one.
+ *
+ * @author TrusTio
+ */
+class LatencyReport {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private Map<Operation, Histogram> histograms;
+    private Map<Operation, Long> errorCounts;
+    private long intervalStart = System.nanoTime();
+    private long intervalNanos;
+
+    LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long nanos, boolean failed) {
+        recorders.get(operation).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+        if (failed) {
+            errors.get(operation).increment();
+        }
+    }
+
+    /**
+     * Drops what was recorded so far, at the end of the warm up.
+     */
+    void reset() {
+        interval();
+    }
+
+    /**
+     * Takes what was recorded since the last reset as the result of the run.
+     */
+    void complete() {
+        interval();
+    }
+
+    void print(PrintStream out) {
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        double seconds = intervalNanos / 1e9;
+
+        out.printf("%-15s %10s %8s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "errors", "ops/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                printRow(out, operation.getName(), histogram, errorCounts.get(operation), seconds);
+            }
+            total.add(histogram);
+            totalErrors += errorCounts.get(operation);
+        }
+        printRow(out, "total", total, totalErrors, seconds);
+    }
+
+    /**
+     * Writes the report and the percentile distribution of every operation (.hgrm files,
+     * in milliseconds) to the directory, to be plotted or compared between runs.
+     *
+     * @param directory Path of the output directory
+     * @param settings  {@link LoadTestSettings} of the run, written as the header of the report
+     */
+    void write(Path directory, String settings) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("results.txt")))) {
+            out.println(settings);
+            out.println();
+            print(out);
+        }
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(
+                        directory.resolve(operation.getName() + ".hgrm")))) {
+                    histogram.outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        }
+    }
+
+    private void interval() {
+        long now = System.nanoTime();
+        intervalNanos = now - intervalStart;
+        intervalStart = now;
+
+        histograms = new EnumMap<>(Operation.class);
+        errorCounts = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, recorders.get(operation).getIntervalHistogram());
+            errorCounts.put(operation, errors.get(operation).sumThenReset());
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long errors, double seconds) {
+        out.printf("%-15s %10d %8d %10.1f", name, histogram.getTotalCount(), errors,
+                histogram.getTotalCount() / seconds);
+        for (double percentile : PERCENTILES) {
+            out.printf(" %10.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf(" %10.2f%n", histogram.getMaxValue() / 1000.0);
+    }
+}
@@ -0,0 +1,181 @@
+package com.mine.gallery.load;
+
+import com.mine.gallery.GalleryApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * End-to-end load test of the REST API. Boots the application against an embedded H2 database and an image
+ * storage in a temporary directory, seeds them with {@link SyntheticDataGenerator} and {@link SyntheticImages},
+ * then runs the {@link LoadWorker workers} over HTTP for the warm up and the measured duration.
+ * <p>
+ * Latency percentiles and throughput of every operation are printed and written to loadtest.output.
+ * Run it with {@code ./gradlew loadTest}, see {@link LoadTestSettings} for the settings.
+ *
+ * @author TrusTio
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        String description = describe(settings);
+        System.out.println(description);
+
+        // the image storage lives under the working directory
+        Path directory = Files.createTempDirectory("gallery-loadtest");
+        System.setProperty("user.dir", directory.toString());
+        Random random = new Random(settings.randomSeed);
+
+        long start = System.nanoTime();
+        SyntheticImages images = SyntheticImages.generate(settings.files, directory.resolve("image-storage"), random);
+        System.out.printf("Generated %s (%ds)%n", images.describe(), elapsedSeconds(start));
+
+        int port = freePort();
+        String baseUrl = "http://localhost:" + port;
+        List<String> arguments = new ArrayList<>(Arrays.asList("--server.port=" + port,
+                "--gallery.media.base-url=" + baseUrl,
+                "--spring.datasource.url=jdbc:h2:file:" + directory.resolve("gallerydb") + ";MODE=MySQL"));
+        if (settings.serverThreads > 0) {
+            arguments.add("--server.tomcat.threads.max=" + settings.serverThreads);
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(GalleryApplication.class)
+                .profiles("loadtest")
+                .run(arguments.toArray(new String[0]));
+
+        try (GalleryClient client = new GalleryClient(baseUrl, settings.workers + settings.slowClients)) {
+            start = System.nanoTime();
+            String passwordHash = context.getBean(PasswordEncoder.class).encode(SyntheticDataGenerator.PASSWORD);
+            new SyntheticDataGenerator(context.getBean(DataSource.class), settings, images, random).seed(passwordHash);
+            System.out.printf("Seeded %d users, %d galleries and %d images (%ds)%n", settings.users,
+                    (long) settings.users * settings.galleriesPerUser, settings.seededImages(),
+                    elapsedSeconds(start));
+
+            List<List<LoadWorker.Session>> sessions = login(client, settings);
+            List<LoadWorker.Session> slowSessions = loginSlowClients(client, settings);
+
+            LatencyReport report = new LatencyReport();
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < settings.workers; i++) {
+                Thread worker = new Thread(new LoadWorker(i, client, report, settings, images, sessions.get(i),
+                        running), "load-worker-" + i);
+                worker.start();
+                workers.add(worker);
+            }
+            ThrottledClient throttledClient = new ThrottledClient(baseUrl, settings.slowClientBytesPerSecond);
+            for (int i = 0; i < slowSessions.size(); i++) {
+                Thread slowClient = new Thread(new SlowClient(i, client, throttledClient, report, settings, images,
+                        slowSessions.get(i), running), "slow-client-" + i);
+                slowClient.start();
+                workers.add(slowClient);
+            }
+
+            System.out.printf("Warming up for %ds%n", settings.warmupSeconds);
+            TimeUnit.SECONDS.sleep(settings.warmupSeconds);
+            report.reset();
+            System.out.printf("Measuring for %ds%n", settings.durationSeconds);
+            TimeUnit.SECONDS.sleep(settings.durationSeconds);
+            report.complete();
+
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            System.out.println();
+            report.print(System.out);
+            report.write(settings.output, description);
+            System.out.println("\nResults written to " + settings.output.toAbsolutePath());
+        } finally {
+            context.close();
+            if (!settings.keepData) {
+                FileSystemUtils.deleteRecursively(directory);
+            } else {
+                System.out.println("Data kept in " + directory);
+            }
+        }
+    }
+
+    /**
+     * Logs the active users in, spread evenly over the seeded ones, and deals them to the workers.
+     * The logins run in parallel but bounded, as every one of them is a BCrypt check.
+     *
+     * @return List of the sessions of every worker
+     */
+    private static List<List<LoadWorker.Session>> login(GalleryClient client, LoadTestSettings settings)
+            throws Exception {
+        int activeUsers = Math.min(Math.max(settings.activeUsers, settings.workers), settings.users);
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<LoadWorker.Session>> logins = new ArrayList<>();
+        for (int i = 0; i < activeUsers; i++) {
+            long userId = 1 + (long) i * settings.users / activeUsers;
+            logins.add(executor.submit(() -> new LoadWorker.Session(userId,
+                    client.login("user" + userId, SyntheticDataGenerator.PASSWORD))));
+        }
+
+        List<List<LoadWorker.Session>> sessions = new ArrayList<>();
+        for (int i = 0; i < settings.workers; i++) {
+            sessions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < logins.size(); i++) {
+            sessions.get(i % settings.workers).add(logins.get(i).get());
+        }
+        executor.shutdown();
+        System.out.printf("Logged in %d users (%ds)%n", activeUsers, elapsedSeconds(start));
+        return sessions;
+    }
+
+    /**
+     * Logs the users of the slow clients in, taken from the end of the seeded ones.
+     * They only upload and download, so sharing a user with a worker does no harm.
+     *
+     * @return List of the sessions of the slow clients
+     */
+    private static List<LoadWorker.Session> loginSlowClients(GalleryClient client, LoadTestSettings settings) {
+        List<LoadWorker.Session> sessions = new ArrayList<>();
+        for (int i = 0; i < settings.slowClients; i++) {
+            long userId = settings.users - i % settings.users;
+            sessions.add(new LoadWorker.Session(userId, client.login("user" + userId, SyntheticDataGenerator.PASSWORD)));
+        }
+        return sessions;
+    }
+
+    private static String describe(LoadTestSettings settings) {
+        return String.format("Load test: %d users x %d galleries x %d images, %d files, %d active users, "
+                        + "%d workers, %s, mix %s, %d slow clients at %d KB/s, %s server threads, "
+                        + "%ds warm up, %ds measured",
+                settings.users, settings.galleriesPerUser, settings.imagesPerGallery, settings.files,
+                settings.activeUsers, settings.workers,
+                settings.targetRate > 0 ? settings.targetRate + " ops/s" : "closed loop",
+                settings.mix, settings.slowClients, settings.slowClientBytesPerSecond / 1024,
+                settings.serverThreads > 0 ? String.valueOf(settings.serverThreads) : "default",
+                settings.warmupSeconds, settings.durationSeconds);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long elapsedSeconds(long start) {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,89 @@
+package com.mine.gallery.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from the loadtest.* system properties.
+ * The gradle loadTest task forwards the ones it's started with, e.g.
+ * {@code ./gradlew loadTest -Dloadtest.users=1000 -Dloadtest.duration-seconds=60}
+ *
+ * @author TrusTio
+ */
+class LoadTestSettings {
+    /**
+     * Synthetic users, each with galleries-per-user galleries of images-per-gallery images.
+     * The defaults seed 2 million images.
+     */
+    final int users = intProperty("users", 10_000);
+    final int galleriesPerUser = intProperty("galleries-per-user", 5);
+    final int imagesPerGallery = intProperty("images-per-gallery", 40);
+
+    /**
+     * Distinct image files generated for the seeded rows and the uploads to share
+     */
+    final int files = intProperty("files", 48);
+
+    /**
+     * Users that log in and generate the load, spread between the workers
+     */
+    final int activeUsers = intProperty("active-users", 200);
+    final int workers = intProperty("workers", 32);
+
+    /**
+     * Clients on a slow network that upload and download full size images, each as its own user, at
+     * slow-client-bytes-per-second, see {@link SlowClient}
+     */
+    final int slowClients = intProperty("slow-clients", 0);
+    final int slowClientBytesPerSecond = intProperty("slow-client-bytes-per-second", 64 * 1024);
+
+    /**
+     * Request threads of the server, 0 keeps the default of the application. With fewer request threads
+     * than slow clients, transfers that held a request thread would stall the workers
+     */
+    final int serverThreads = intProperty("server-threads", 0);
+
+    final int warmupSeconds = intProperty("warmup-seconds", 30);
+    final int durationSeconds = intProperty("duration-seconds", 120);
+
+    /**
+     * Total operations per second to pace the workers at. With 0 every worker sends the next request
+     * as soon as the previous one completes, otherwise latencies are measured from the time the request
+     * was due, so a stalled server isn't hidden by the workers waiting on it.
+     */
+    final int targetRate = intProperty("target-rate", 0);
+
+    final Map<Operation, Integer> mix = mix(System.getProperty("loadtest.mix",
+            "list-galleries:15,list-images:25,thumbnail:30,original:10,upload:8,rename:7,delete:5"));
+
+    final long randomSeed = intProperty("random-seed", 42);
+
+    /**
+     * Where the report and the latency distributions are written
+     */
+    final Path output = Paths.get(System.getProperty("loadtest.output", "build/reports/loadtest"));
+
+    /**
+     * Keeps the database and the image storage of the run instead of deleting them at the end
+     */
+    final boolean keepData = Boolean.getBoolean("loadtest.keep-data");
+
+    long seededImages() {
+        return (long) users * galleriesPerUser * imagesPerGallery;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+
+    private static Map<Operation, Integer> mix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] weight = entry.trim().split(":");
+            mix.put(Operation.fromName(weight[0]), Integer.parseInt(weight[1]));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,192 @@
+package com.mine.gallery.load;
+
+import com.mine.gallery.service.dto.ImageDTO;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the operation mix for the users it's logged in as. Every active user belongs to exactly one worker,
+ * so the renames and deletes of the workers never race each other.
+ * <p>
+ * Operations that need something to work on fall back to the one that provides it: the image downloads
+ * and renames to a listing when the worker hasn't listed a gallery yet, the deletes to an upload
+ * when the worker has no uploaded image left.
+ *
+ * @author TrusTio
+ */
+class LoadWorker implements Runnable {
+    private static final int PAGE_SIZE = 20;
+
+    private final int id;
+    private final GalleryClient client;
+    private final LatencyReport report;
+    private final LoadTestSettings settings;
+    private final SyntheticImages images;
+    private final List<Session> sessions;
+    private final AtomicBoolean running;
+    private final Random random;
+    private final Operation[] operations;
+
+    private final Deque<Upload> uploads = new ArrayDeque<>();
+    private Listing listing;
+    private long counter;
+
+    LoadWorker(int id, GalleryClient client, LatencyReport report, LoadTestSettings settings, SyntheticImages images,
+               List<Session> sessions, AtomicBoolean running) {
+        this.id = id;
+        this.client = client;
+        this.report = report;
+        this.settings = settings;
+        this.images = images;
+        this.sessions = sessions;
+        this.running = running;
+        this.random = new Random(settings.randomSeed + id);
+        this.operations = weighted(settings.mix);
+    }
+
+    @Override
+    public void run() {
+        long interval = settings.targetRate > 0 ? TimeUnit.SECONDS.toNanos(settings.workers) / settings.targetRate : 0;
+        long next = System.nanoTime();
+        while (running.get()) {
+            long start;
+            if (interval > 0) {
+                // measured from when the operation was due, not from when the worker got to it
+                LockSupport.parkNanos(next - System.nanoTime());
+                start = next;
+                next += interval;
+            } else {
+                start = System.nanoTime();
+            }
+
+            Operation operation = operations[random.nextInt(operations.length)];
+            boolean failed = false;
+            try {
+                operation = execute(operation);
+            } catch (RestClientException e) {
+                failed = true;
+            }
+            report.record(operation, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * @return Operation that was actually executed
+     */
+    private Operation execute(Operation operation) {
+        if ((operation == Operation.THUMBNAIL || operation == Operation.ORIGINAL || operation == Operation.RENAME)
+                && (listing == null || listing.images.isEmpty())) {
+            operation = Operation.LIST_IMAGES;
+        }
+        if (operation == Operation.DELETE && uploads.isEmpty()) {
+            operation = Operation.UPLOAD;
+        }
+
+        Session session = sessions.get(random.nextInt(sessions.size()));
+        long galleryId = (session.userId - 1) * settings.galleriesPerUser + random.nextInt(settings.galleriesPerUser)
+                + 1;
+        switch (operation) {
+            case LIST_GALLERIES:
+                client.getGalleries(session.token, session.userId);
+                break;
+            case LIST_IMAGES:
+                int pages = Math.max(1, (settings.imagesPerGallery + PAGE_SIZE - 1) / PAGE_SIZE);
+                listing = new Listing(session, galleryId, new ArrayList<>(client.getGalleryImages(session.token,
+                        session.userId, galleryId, random.nextInt(pages), PAGE_SIZE)));
+                break;
+            case THUMBNAIL:
+                client.download(randomListed().getThumbnail());
+                break;
+            case ORIGINAL:
+                client.download(randomListed().getUrl());
+                break;
+            case UPLOAD:
+                SyntheticImages.SyntheticImage image = images.pick(random.nextInt(Integer.MAX_VALUE));
+                String name = "upload-" + id + "-" + counter++ + "." + image.getExtension();
+                client.upload(session.token, galleryId, name, image);
+                uploads.add(new Upload(session, galleryId, name));
+                break;
+            case RENAME:
+                // renamed images leave the listing, the service keeps their extension
+                ImageDTO renamed = listing.images.remove(random.nextInt(listing.images.size()));
+                client.rename(listing.session.token, listing.session.userId, listing.galleryId, renamed.getName(),
+                        "renamed-" + id + "-" + counter++);
+                break;
+            case DELETE:
+                Upload upload = uploads.poll();
+                client.delete(upload.session.token, upload.session.userId, upload.galleryId, upload.name);
+                break;
+            default:
+                throw new IllegalStateException(operation.name());
+        }
+        return operation;
+    }
+
+    private ImageDTO randomListed() {
+        return listing.images.get(random.nextInt(listing.images.size()));
+    }
+
+    private static Operation[] weighted(Map<Operation, Integer> mix) {
+        List<Operation> operations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        return operations.toArray(new Operation[0]);
+    }
+
+    /**
+     * A logged in user
+     */
+    static class Session {
+        private final long userId;
+        private final String token;
+
+        Session(long userId, String token) {
+            this.userId = userId;
+            this.token = token;
+        }
+
+        long getUserId() {
+            return userId;
+        }
+
+        String getToken() {
+            return token;
+        }
+    }
+
+    private static class Listing {
+        private final Session session;
+        private final long galleryId;
+        private final List<ImageDTO> images;
+
+        Listing(Session session, long galleryId, List<ImageDTO> images) {
+            this.session = session;
+            this.galleryId = galleryId;
+            this.images = images;
+        }
+    }
+
+    private static class Upload {
+        private final Session session;
+        private final long galleryId;
+        private final String name;
+
+        Upload(Session session, long galleryId, String name) {
+            this.session = session;
+            this.galleryId = galleryId;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mine.gallery.load;
+
+/**
+ * Operations the load test workers mix, named as in the loadtest.mix setting.
+ *
+ * @author TrusTio
+ */
+enum Operation {
+    /**
+     * Lists the galleries of the user
+     */
+    LIST_GALLERIES("list-galleries"),
+    /**
+     * Lists a random page of the images of a gallery
+     */
+    LIST_IMAGES("list-images"),
+    /**
+     * Fetches a thumbnail through the signed url of the last listing
+     */
+    THUMBNAIL("thumbnail"),
+    /**
+     * Fetches a full size image through the signed url of the last listing
+     */
+    ORIGINAL("original"),
+    UPLOAD("upload"),
+    /**
+     * Renames a seeded image
+     */
+    RENAME("rename"),
+    /**
+     * Deletes an image the worker uploaded, seeded images share their files so they're never deleted
+     */
+    DELETE("delete"),
+    /**
+     * Uploads an image over a throttled connection, done by the slow clients only
+     */
+    SLOW_UPLOAD("slow-upload"),
+    /**
+     * Fetches a full size image over a throttled connection, done by the slow clients only
+     */
+    SLOW_ORIGINAL("slow-original");
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    static Operation fromName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + name);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mine.gallery.load;
+
+import com.mine.gallery.service.dto.ImageDTO;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads and downloads full size images through a {@link ThrottledClient}, one after the other, next to
+ * the {@link LoadWorker workers}. The slow transfers shouldn't hold the request threads of the server,
+ * so the latencies of the workers should stay where they are without slow clients.
+ * <p>
+ * The images to download are taken from a listing made at full speed, which isn't recorded.
+ *
+ * @author TrusTio
+ */
+class SlowClient implements Runnable {
+    private static final int PAGE_SIZE = 20;
+
+    private final int id;
+    private final GalleryClient client;
+    private final ThrottledClient throttledClient;
+    private final LatencyReport report;
+    private final LoadTestSettings settings;
+    private final SyntheticImages images;
+    private final LoadWorker.Session session;
+    private final AtomicBoolean running;
+    private final Random random;
+    private long counter;
+
+    SlowClient(int id, GalleryClient client, ThrottledClient throttledClient, LatencyReport report,
+               LoadTestSettings settings, SyntheticImages images, LoadWorker.Session session, AtomicBoolean running) {
+        this.id = id;
+        this.client = client;
+        this.throttledClient = throttledClient;
+        this.report = report;
+        this.settings = settings;
+        this.images = images;
+        this.session = session;
+        this.running = running;
+        this.random = new Random(settings.randomSeed - id - 1);
+    }
+
+    @Override
+    public void run() {
+        boolean upload = random.nextBoolean();
+        while (running.get()) {
+            long galleryId = (session.getUserId() - 1) * settings.galleriesPerUser
+                    + random.nextInt(settings.galleriesPerUser) + 1;
+            Operation operation = upload ? Operation.SLOW_UPLOAD : Operation.SLOW_ORIGINAL;
+            upload = !upload;
+
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                if (operation == Operation.SLOW_UPLOAD) {
+                    SyntheticImages.SyntheticImage image = images.pick(random.nextInt(Integer.MAX_VALUE));
+                    throttledClient.upload(session.getToken(), galleryId,
+                            "slow-" + id + "-" + counter++ + "." + image.getExtension(), image);
+                } else {
+                    List<ImageDTO> listed = client.getGalleryImages(session.getToken(), session.getUserId(),
+                            galleryId, 0, PAGE_SIZE);
+                    if (listed.isEmpty()) {
+                        continue;
+                    }
+                    start = System.nanoTime();
+                    throttledClient.download(listed.get(random.nextInt(listed.size())).getUrl());
+                }
+            } catch (IOException | RestClientException e) {
+                failed = true;
+            }
+            report.record(operation, System.nanoTime() - start, failed);
+        }
+    }
+}
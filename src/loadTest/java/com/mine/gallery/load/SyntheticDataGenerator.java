@@ -0,0 +1,127 @@
+package com.mine.gallery.load;
+
+import com.mine.gallery.persistence.entity.RoleName;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds the users, galleries and images of a load test run straight into the database with JDBC batches,
+ * as going through the API would take hours for millions of rows. The rows are consistent with what the
+ * application maintains itself: gallery statistics and covers, user storage usage and the id generators.
+ * <p>
+ * User n is "user{n}", all of them share {@link #PASSWORD}. The images point to the {@link SyntheticImages} files.
+ *
+ * @author TrusTio
+ */
+class SyntheticDataGenerator {
+    static final String PASSWORD = "LoadTest1!";
+
+    /**
+     * Users seeded per transaction
+     */
+    private static final int CHUNK = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoadTestSettings settings;
+    private final SyntheticImages images;
+    private final Random random;
+
+    SyntheticDataGenerator(DataSource dataSource, LoadTestSettings settings, SyntheticImages images, Random random) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.settings = settings;
+        this.images = images;
+        this.random = random;
+    }
+
+    /**
+     * Seeds the rows of every user.
+     *
+     * @param passwordHash String encoded {@link #PASSWORD}, computed once for all users
+     */
+    void seed(String passwordHash) {
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE name = ?", Long.class,
+                RoleName.ROLE_USER.name());
+
+        long start = System.nanoTime();
+        int reported = 0;
+        for (int first = 1; first <= settings.users; first += CHUNK) {
+            int last = Math.min(first + CHUNK - 1, settings.users);
+            int from = first;
+            transactionTemplate.executeWithoutResult(status -> seedUsers(from, last, passwordHash, roleId));
+
+            int progress = (int) (10L * last / settings.users);
+            if (progress > reported) {
+                reported = progress;
+                System.out.printf("  seeded %d/%d users (%ds)%n", last, settings.users,
+                        (System.nanoTime() - start) / 1_000_000_000);
+            }
+        }
+
+        // the generated ids continue after the seeded ones
+        resetIdGenerator("Users", settings.users);
+        resetIdGenerator("Galleries", (long) settings.users * settings.galleriesPerUser);
+        resetIdGenerator("Images", settings.seededImages());
+    }
+
+    private void seedUsers(int first, int last, String passwordHash, Long roleId) {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> userRoles = new ArrayList<>();
+        List<Object[]> galleries = new ArrayList<>();
+        List<Object[]> covers = new ArrayList<>();
+        List<Object[]> imageRows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (long userId = first; userId <= last; userId++) {
+            long userBytes = 0;
+            for (int g = 0; g < settings.galleriesPerUser; g++) {
+                long galleryId = (userId - 1) * settings.galleriesPerUser + g + 1;
+                long galleryBytes = 0;
+                for (int i = 0; i < settings.imagesPerGallery; i++) {
+                    long imageId = (galleryId - 1) * settings.imagesPerGallery + i + 1;
+                    SyntheticImages.SyntheticImage image = images.pick(random.nextInt(Integer.MAX_VALUE));
+                    imageRows.add(new Object[]{imageId, "image-" + i + "." + image.getExtension(),
+                            image.getLocation(), image.getContent().length, galleryId});
+                    galleryBytes += image.getContent().length;
+                }
+                galleries.add(new Object[]{galleryId, "gallery-" + g, settings.imagesPerGallery, galleryBytes, now,
+                        userId});
+                if (settings.imagesPerGallery > 0) {
+                    covers.add(new Object[]{(galleryId - 1) * settings.imagesPerGallery + 1, galleryId});
+                }
+                userBytes += galleryBytes;
+            }
+            users.add(new Object[]{userId, "user" + userId, "user" + userId + "@load.test", passwordHash, userBytes,
+                    (long) settings.galleriesPerUser * settings.imagesPerGallery});
+            userRoles.add(new Object[]{userId, roleId});
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, password, storage_bytes, storage_objects)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", users);
+        jdbcTemplate.batchUpdate("INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)", userRoles);
+        jdbcTemplate.batchUpdate("INSERT INTO galleries (id, name, image_count, total_bytes, last_updated, user_id)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", galleries);
+        jdbcTemplate.batchUpdate("INSERT INTO images (id, name, location, file_size, gallery_id)"
+                + " VALUES (?, ?, ?, ?, ?)", imageRows);
+        jdbcTemplate.batchUpdate("UPDATE galleries SET cover_image_id = ? WHERE id = ?", covers);
+    }
+
+    /**
+     * Moves the pooled table generator of the segment past the seeded ids,
+     * see {@link com.mine.gallery.persistence.shard.ShardAwareTableGenerator}
+     */
+    private void resetIdGenerator(String segment, long seededIds) {
+        jdbcTemplate.update("DELETE FROM id_generator WHERE sequence_name = ?", segment);
+        jdbcTemplate.update("INSERT INTO id_generator (sequence_name, next_val) VALUES (?, ?)", segment,
+                seededIds + 100);
+    }
+}
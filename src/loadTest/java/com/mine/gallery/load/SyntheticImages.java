@@ -0,0 +1,230 @@
+package com.mine.gallery.load;
+
+import net.coobird.thumbnailator.Thumbnails;
+import net.coobird.thumbnailator.name.Rename;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the image files of a load test run. Most of them are photo like JPEGs, from small
+ * to 12 megapixels, with varying noise so they compress differently. The rest are screenshot like PNGs.
+ * <p>
+ * Every file is written once to the image storage, with its thumbnail, and shared by many seeded images.
+ *
+ * @author TrusTio
+ */
+class SyntheticImages {
+    static final String DIRECTORY = "/synthetic/";
+
+    /**
+     * The uploads are limited to 8 MB, see {@link com.mine.gallery.service.ImageService}
+     */
+    private static final int MAX_SIZE = 8_000_000;
+
+    private static final Shape[] SHAPES = {
+            new Shape(800, 600, "jpg", 20),
+            new Shape(1280, 960, "jpg", 25),
+            new Shape(1920, 1080, "jpg", 25),
+            new Shape(4032, 3024, "jpg", 12),
+            new Shape(1280, 720, "png", 10),
+            new Shape(1920, 1080, "png", 8)
+    };
+
+    private final List<SyntheticImage> images;
+
+    private SyntheticImages(List<SyntheticImage> images) {
+        this.images = images;
+    }
+
+    /**
+     * Generates the files and writes them under the synthetic directory of the storage.
+     *
+     * @param count   int number of files
+     * @param storage Path of the image storage
+     * @param random  Random source of the sizes and the content
+     * @return SyntheticImages
+     */
+    static SyntheticImages generate(int count, Path storage, Random random) throws IOException {
+        Path directory = storage.resolve(DIRECTORY.substring(1));
+        Files.createDirectories(directory);
+
+        List<SyntheticImage> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Shape shape = pick(random);
+            byte[] content = render(shape, random, 1 + random.nextInt(24));
+            for (int noise = 12; content.length > MAX_SIZE; noise /= 2) {
+                content = render(shape, random, noise);
+            }
+
+            String name = i + "." + shape.extension;
+            Path file = directory.resolve(name);
+            Files.write(file, content);
+            Thumbnails.of(file.toFile())
+                    .size(250, 140)
+                    .toFiles(Rename.PREFIX_DOT_THUMBNAIL);
+
+            images.add(new SyntheticImage(DIRECTORY + name, shape.extension, content));
+        }
+        return new SyntheticImages(Collections.unmodifiableList(images));
+    }
+
+    List<SyntheticImage> getImages() {
+        return images;
+    }
+
+    SyntheticImage pick(long index) {
+        return images.get((int) (index % images.size()));
+    }
+
+    /**
+     * @return String with the count, median and maximum size of the files
+     */
+    String describe() {
+        long[] sizes = images.stream().mapToLong(image -> image.getContent().length).sorted().toArray();
+        long jpegs = images.stream().filter(image -> image.getExtension().equals("jpg")).count();
+        return String.format("%d files (%d jpg, %d png), median %d KB, max %d KB",
+                sizes.length, jpegs, sizes.length - jpegs, sizes[sizes.length / 2] / 1024,
+                sizes[sizes.length - 1] / 1024);
+    }
+
+    private static Shape pick(Random random) {
+        int total = 0;
+        for (Shape shape : SHAPES) {
+            total += shape.weight;
+        }
+        int roll = random.nextInt(total);
+        for (Shape shape : SHAPES) {
+            roll -= shape.weight;
+            if (roll < 0) {
+                return shape;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static byte[] render(Shape shape, Random random, int noise) {
+        BufferedImage image = new BufferedImage(shape.width, shape.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        if (shape.extension.equals("png")) {
+            drawScreenshot(graphics, shape, random);
+        } else {
+            drawPhoto(graphics, shape, random);
+            addNoise(image, random, noise);
+        }
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, shape.extension, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void drawPhoto(Graphics2D graphics, Shape shape, Random random) {
+        graphics.setPaint(new GradientPaint(0, 0, randomColor(random), shape.width, shape.height,
+                randomColor(random)));
+        graphics.fillRect(0, 0, shape.width, shape.height);
+        for (int i = 0; i < 40; i++) {
+            graphics.setColor(randomColor(random));
+            graphics.fillOval(random.nextInt(shape.width), random.nextInt(shape.height),
+                    random.nextInt(shape.width / 3) + 1, random.nextInt(shape.height / 3) + 1);
+        }
+    }
+
+    private static void drawScreenshot(Graphics2D graphics, Shape shape, Random random) {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, shape.width, shape.height);
+        for (int i = 0; i < 12; i++) {
+            graphics.setColor(randomColor(random));
+            graphics.fillRect(random.nextInt(shape.width), random.nextInt(shape.height),
+                    random.nextInt(shape.width / 2) + 1, random.nextInt(shape.height / 4) + 1);
+        }
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 14));
+        for (int y = 20; y < shape.height; y += 18) {
+            graphics.drawString(Long.toHexString(random.nextLong()) + " " + Long.toHexString(random.nextLong()),
+                    10 + random.nextInt(40), y);
+        }
+    }
+
+    private static void addNoise(BufferedImage image, Random random, int noise) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int delta = (int) (random.nextGaussian() * noise);
+                image.setRGB(x, y, (clamp((rgb >> 16 & 0xff) + delta) << 16)
+                        | (clamp((rgb >> 8 & 0xff) + delta) << 8)
+                        | clamp((rgb & 0xff) + delta));
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static Color randomColor(Random random) {
+        return new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    }
+
+    /**
+     * A generated file: its storage location, extension and content, which the uploads reuse
+     */
+    static class SyntheticImage {
+        private final String location;
+        private final String extension;
+        private final byte[] content;
+
+        SyntheticImage(String location, String extension, byte[] content) {
+            this.location = location;
+            this.extension = extension;
+            this.content = content;
+        }
+
+        String getLocation() {
+            return location;
+        }
+
+        String getExtension() {
+            return extension;
+        }
+
+        String getContentType() {
+            return extension.equals("png") ? "image/png" : "image/jpeg";
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+    }
+
+    private static class Shape {
+        private final int width;
+        private final int height;
+        private final String extension;
+        private final int weight;
+
+        Shape(int width, int height, String extension, int weight) {
+            this.width = width;
+            this.height = height;
+            this.extension = extension;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.mine.gallery.load;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Client on a slow network, like a phone on a weak mobile connection. Uploads and downloads go through
+ * connections of their own, with the request and response bodies throttled to a fixed number of bytes
+ * per second, so every transfer keeps its connection open for seconds.
+ *
+ * @author TrusTio
+ */
+class ThrottledClient {
+    private static final int CHUNKS_PER_SECOND = 10;
+
+    private final String baseUrl;
+    private final int chunkSize;
+
+    ThrottledClient(String baseUrl, int bytesPerSecond) {
+        this.baseUrl = baseUrl;
+        this.chunkSize = Math.max(1, bytesPerSecond / CHUNKS_PER_SECOND);
+    }
+
+    void upload(String token, long galleryId, String name, SyntheticImages.SyntheticImage image) throws IOException {
+        String boundary = "loadtest" + Long.toHexString(System.nanoTime());
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.getContent().length + 512);
+        write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"galleryId\"\r\n\r\n"
+                + galleryId + "\r\n");
+        write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"imageFile\"; filename=\""
+                + name + "\"\r\nContent-Type: " + image.getContentType() + "\r\n\r\n");
+        body.write(image.getContent());
+        write(body, "\r\n--" + boundary + "--\r\n");
+        byte[] content = body.toByteArray();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/api/v1/image").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(content.length);
+        connection.setRequestProperty(HttpHeaders.AUTHORIZATION, token);
+        connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary);
+        try (OutputStream out = connection.getOutputStream()) {
+            throttledCopy(new ByteArrayInputStream(content), out);
+        }
+        try (InputStream in = response(connection)) {
+            StreamUtils.drain(in);
+        }
+    }
+
+    /**
+     * Downloads a signed image url, reading the body without keeping it.
+     *
+     * @param url String signed url of an image or a thumbnail
+     * @return long number of bytes read
+     */
+    long download(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try (InputStream in = response(connection)) {
+            return throttledCopy(in, null);
+        }
+    }
+
+    private static InputStream response(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status >= 400) {
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                StreamUtils.drain(error);
+                error.close();
+            }
+            throw new IOException("HTTP " + status + " from " + connection.getURL());
+        }
+        return connection.getInputStream();
+    }
+
+    /**
+     * Copies one chunk every 1/{@link #CHUNKS_PER_SECOND} of a second, to the output if there is one.
+     */
+    private long throttledCopy(InputStream in, OutputStream out) throws IOException {
+        byte[] chunk = new byte[chunkSize];
+        long interval = TimeUnit.SECONDS.toNanos(1) / CHUNKS_PER_SECOND;
+        long next = System.nanoTime();
+        long total = 0;
+        int read;
+        while ((read = IOUtils.read(in, chunk)) > 0) {
+            if (out != null) {
+                out.write(chunk, 0, read);
+                out.flush();
+            }
+            total += read;
+            next += interval;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+        return total;
+    }
+
+    private static void write(ByteArrayOutputStream body, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        body.write(bytes, 0, bytes.length);
+    }
+}
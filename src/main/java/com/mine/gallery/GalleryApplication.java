@@ -3,11 +3,12 @@ package com.mine.gallery;
 import com.mine.gallery.persistence.entity.Role;
 import com.mine.gallery.persistence.entity.RoleName;
 import com.mine.gallery.persistence.repository.RoleRepository;
+import com.mine.gallery.persistence.shard.ShardTemplate;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Starting point of the application. The only functionality
@@ -18,24 +19,20 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
  * @author TrusTio
  */
 @SpringBootApplication
+@EnableScheduling
 public class GalleryApplication {
     public static void main(String[] args) {
         SpringApplication.run(GalleryApplication.class, args);
     }
 
-    @Bean
-    public BCryptPasswordEncoder bCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     /**
-     * Inserts ADMIN and USER role in the database on startup
+     * Inserts ADMIN and USER role in the database of every shard on startup
      */
     @Bean
-    public CommandLineRunner demoData(RoleRepository roleRepository) {
-        return args -> {
+    public CommandLineRunner demoData(RoleRepository roleRepository, ShardTemplate shardTemplate) {
+        return args -> shardTemplate.runOnEach(() -> {
             roleRepository.save(new Role(1L, RoleName.ROLE_ADMIN));
             roleRepository.save(new Role(2L, RoleName.ROLE_USER));
-        };
+        });
     }
 }
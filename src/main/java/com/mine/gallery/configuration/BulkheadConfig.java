@@ -0,0 +1,109 @@
+package com.mine.gallery.configuration;
+
+import com.mine.gallery.persistence.datasource.Workload;
+import com.mine.gallery.persistence.datasource.WorkloadContext;
+import com.mine.gallery.timing.ServerTiming;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Isolates the image workloads from the API and from each other. Each one gets its own bounded executor
+ * (and its own database connections, see {@link DataSourceConfig}), so an upload storm or a burst of
+ * thumbnails can only saturate its own pool while browsing stays on the request threads.
+ * <p>
+ * Saturation is published as the executor.* metrics, tagged with the name of the executor.
+ *
+ * @author TrusTio
+ */
+@Configuration
+@EnableConfigurationProperties(GalleryBulkheadProperties.class)
+public class BulkheadConfig implements WebMvcConfigurer {
+    public static final String IMAGE_IO_EXECUTOR = "imageIoExecutor";
+    public static final String IMAGE_PROCESSING_EXECUTOR = "imageProcessingExecutor";
+    public static final String STORAGE_IO_EXECUTOR = "storageIoExecutor";
+
+    private final ThreadPoolTaskExecutor imageIoExecutor;
+
+    public BulkheadConfig(GalleryBulkheadProperties properties) {
+        this.imageIoExecutor = executor("image-io-", properties.getImageIo(), Workload.IMAGE_IO);
+    }
+
+    /**
+     * Runs the async uploads and downloads (Callable and StreamingResponseBody handlers).
+     *
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean(name = IMAGE_IO_EXECUTOR)
+    public ThreadPoolTaskExecutor imageIoExecutor() {
+        return imageIoExecutor;
+    }
+
+    /**
+     * Runs the thumbnail generation.
+     *
+     * @param properties {@link GalleryBulkheadProperties}
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean(name = IMAGE_PROCESSING_EXECUTOR)
+    public ThreadPoolTaskExecutor imageProcessingExecutor(GalleryBulkheadProperties properties) {
+        GalleryBulkheadProperties.Pool pool = properties.getImageProcessing();
+        if (pool.getThreads() <= 0) {
+            pool = new GalleryBulkheadProperties.Pool(Runtime.getRuntime().availableProcessors(),
+                    pool.getQueueCapacity());
+        }
+        return executor("image-processing-", pool, Workload.IMAGE_PROCESSING);
+    }
+
+    /**
+     * Runs the file deletes of the bulk deletes.
+     *
+     * @param properties {@link GalleryBulkheadProperties}
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean(name = STORAGE_IO_EXECUTOR)
+    public ThreadPoolTaskExecutor storageIoExecutor(GalleryBulkheadProperties properties) {
+        return executor("storage-io-", properties.getStorageIo(), Workload.IMAGE_IO);
+    }
+
+    @Bean
+    public MeterBinder bulkheadMetrics(@Qualifier(IMAGE_IO_EXECUTOR) ThreadPoolTaskExecutor imageIoExecutor,
+                                       @Qualifier(IMAGE_PROCESSING_EXECUTOR) ThreadPoolTaskExecutor imageProcessingExecutor,
+                                       @Qualifier(STORAGE_IO_EXECUTOR) ThreadPoolTaskExecutor storageIoExecutor) {
+        return registry -> {
+            new ExecutorServiceMetrics(imageIoExecutor.getThreadPoolExecutor(), "image-io", Tags.empty())
+                    .bindTo(registry);
+            new ExecutorServiceMetrics(imageProcessingExecutor.getThreadPoolExecutor(), "image-processing",
+                    Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(storageIoExecutor.getThreadPoolExecutor(), "storage-io", Tags.empty())
+                    .bindTo(registry);
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(imageIoExecutor);
+    }
+
+    private static ThreadPoolTaskExecutor executor(String threadNamePrefix, GalleryBulkheadProperties.Pool pool,
+                                                   Workload workload) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(pool.getThreads());
+        executor.setMaxPoolSize(pool.getThreads());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setTaskDecorator(task -> ServerTiming.propagate(() -> WorkloadContext.runAs(workload, task)));
+        return executor;
+    }
+}
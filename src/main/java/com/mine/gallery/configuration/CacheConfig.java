@@ -0,0 +1,44 @@
+package com.mine.gallery.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Configures the in-memory caches of the user summaries, the login details and the gallery and image listings.
+ * <p>
+ * The caching advice runs before the concurrency limit and the transactional one, so a cache hit
+ * doesn't take a permit of the limit or open a transaction.
+ * Evictions made inside a transaction are applied after it commits, so a concurrent read
+ * can't put the old state back in the cache. The listings aren't evicted but keyed by the version of the
+ * listings of the user, read in the transaction of the listing, see {@link com.mine.gallery.service.ListingVersions}.
+ *
+ * @author TrusTio
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+    public static final String USERS = "users";
+    public static final String USER_DETAILS = "userDetails";
+    public static final String LISTINGS = "listings";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${gallery.cache.users.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}")
+                    String specification,
+            @Value("${gallery.cache.listings.spec:maximumSize=50000,expireAfterWrite=10m,recordStats}")
+                    String listingsSpecification) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(USERS, USER_DETAILS);
+        cacheManager.setCacheSpecification(specification);
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(LISTINGS, Caffeine.from(listingsSpecification).build());
+
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
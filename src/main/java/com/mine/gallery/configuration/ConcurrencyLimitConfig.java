@@ -0,0 +1,39 @@
+package com.mine.gallery.configuration;
+
+import com.mine.gallery.service.limit.AdaptiveConcurrencyLimiter;
+import com.mine.gallery.service.limit.ConcurrencyLimitAspect;
+import com.mine.gallery.service.limit.ConcurrencyLimitAspect.CallClass;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configures the adaptive concurrency limits of the image service, one per class of calls.
+ *
+ * @author TrusTio
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "gallery.image.concurrency", name = "enabled", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public ConcurrencyLimitAspect concurrencyLimitAspect(
+            @Value("${gallery.image.concurrency.initial-limit:20}") int initialLimit,
+            @Value("${gallery.image.concurrency.min-limit:4}") int minLimit,
+            @Value("${gallery.image.concurrency.max-limit:200}") int maxLimit,
+            @Value("${gallery.image.concurrency.tolerance:1.5}") double tolerance,
+            @Value("${gallery.image.concurrency.smoothing:0.2}") double smoothing,
+            MeterRegistry meterRegistry) {
+        // every class of calls adapts to its own latency
+        Map<CallClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(CallClass.class);
+        for (CallClass callClass : CallClass.values()) {
+            limiters.put(callClass, new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance, smoothing));
+        }
+        return new ConcurrencyLimitAspect(limiters, meterRegistry);
+    }
+}
@@ -0,0 +1,170 @@
+package com.mine.gallery.configuration;
+
+import com.mine.gallery.persistence.datasource.ReadYourWritesTracker;
+import com.mine.gallery.persistence.datasource.ReplicaRoutingDataSource;
+import com.mine.gallery.persistence.datasource.WorkloadRoutingDataSource;
+import com.mine.gallery.persistence.shard.ShardMap;
+import com.mine.gallery.persistence.shard.ShardRoutingDataSource;
+import com.mine.gallery.security.IdUsernamePasswordAuthenticationToken;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Configures the data sources of the application.
+ * Every shard is routed by the current {@link com.mine.gallery.persistence.shard.ShardContext}, and inside
+ * a shard the read only transactions are routed to its read replicas (if there are any),
+ * everything else goes to the primary of the shard.
+ * <p>
+ * The connections of every database are split between the API and the image workloads
+ * by a {@link WorkloadRoutingDataSource}, unless no connections are reserved for the images.
+ *
+ * @author TrusTio
+ */
+@Configuration
+@EnableConfigurationProperties(GalleryDataSourceProperties.class)
+public class DataSourceConfig implements DisposableBean {
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+
+    private final List<ReplicaRoutingDataSource> shards = new ArrayList<>();
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(GalleryDataSourceProperties galleryDataSourceProperties) {
+        return new ReadYourWritesTracker(galleryDataSourceProperties.getReadYourWritesWindow());
+    }
+
+    @Bean
+    public ShardMap shardMap(GalleryDataSourceProperties galleryDataSourceProperties) {
+        return new ShardMap(1 + galleryDataSourceProperties.getShards().size());
+    }
+
+    /**
+     * The data source used by JPA. Routes between the shards and their replicas, and delays fetching
+     * the physical connection until the first statement, by then the transaction is marked as
+     * read only and can be routed to a replica.
+     *
+     * @return DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 GalleryDataSourceProperties galleryDataSourceProperties,
+                                 ReadYourWritesTracker readYourWritesTracker,
+                                 Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        int imageConnections = galleryDataSourceProperties.getImageConnections();
+
+        DataSource primary = buildPartitioned("primary", imageConnections, environment,
+                () -> dataSourceProperties.initializeDataSourceBuilder()
+                        .type(HikariDataSource.class)
+                        .build());
+        shards.add(buildShard(primary, "", galleryDataSourceProperties.getReplicas(),
+                dataSourceProperties, imageConnections, readYourWritesTracker, environment));
+
+        for (GalleryDataSourceProperties.Shard shard : galleryDataSourceProperties.getShards()) {
+            String poolName = "shard-" + shards.size();
+            shards.add(buildShard(buildDataSource(shard, poolName, dataSourceProperties, imageConnections, environment),
+                    poolName + "-", shard.getReplicas(), dataSourceProperties, imageConnections,
+                    readYourWritesTracker, environment));
+        }
+
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+    }
+
+    /**
+     * Closes the connection pools of the shards and their replicas.
+     */
+    @Override
+    public void destroy() {
+        shards.forEach(ReplicaRoutingDataSource::close);
+    }
+
+    private ReplicaRoutingDataSource buildShard(DataSource primary,
+                                                String poolNamePrefix,
+                                                List<GalleryDataSourceProperties.Node> replicaNodes,
+                                                DataSourceProperties dataSourceProperties,
+                                                int imageConnections,
+                                                ReadYourWritesTracker readYourWritesTracker,
+                                                Environment environment) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (GalleryDataSourceProperties.Node node : replicaNodes) {
+            replicas.add(buildDataSource(node, poolNamePrefix + "replica-" + replicas.size(),
+                    dataSourceProperties, imageConnections, environment));
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, readYourWritesTracker, DataSourceConfig::currentUserId);
+    }
+
+    private DataSource buildDataSource(GalleryDataSourceProperties.Node node,
+                                       String poolName,
+                                       DataSourceProperties dataSourceProperties,
+                                       int imageConnections,
+                                       Environment environment) {
+        return buildPartitioned(poolName, imageConnections, environment, () -> {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            dataSource.setJdbcUrl(node.getUrl());
+            dataSource.setUsername(node.getUsername());
+            dataSource.setPassword(node.getPassword());
+            return dataSource;
+        });
+    }
+
+    /**
+     * Builds the pool of a database. When connections are reserved for the images, a second, smaller pool
+     * of the same database is built for them and the two are routed by the current workload.
+     */
+    private DataSource buildPartitioned(String poolName, int imageConnections, Environment environment,
+                                        Supplier<HikariDataSource> pool) {
+        HikariDataSource api = pool.get();
+        bindPoolSettings(api, poolName, environment);
+        if (imageConnections <= 0) {
+            return api;
+        }
+
+        HikariDataSource images = pool.get();
+        bindPoolSettings(images, poolName + "-images", environment);
+        images.setMaximumPoolSize(imageConnections);
+        if (images.getMinimumIdle() > imageConnections) {
+            images.setMinimumIdle(imageConnections);
+        }
+
+        return new WorkloadRoutingDataSource(api, images);
+    }
+
+    private void bindPoolSettings(HikariDataSource dataSource, String poolName, Environment environment) {
+        Binder.get(environment).bind(HIKARI_PREFIX, Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        if (meterRegistry != null) {
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        }
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        return authentication instanceof IdUsernamePasswordAuthenticationToken
+                ? ((IdUsernamePasswordAuthenticationToken) authentication).getId()
+                : null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.mine.gallery.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the executors of the image workloads under the "gallery.bulkhead" prefix.
+ * The API runs on the request threads of the server, configured through "server.tomcat.threads".
+ *
+ * @author TrusTio
+ */
+@Data
+@ConfigurationProperties(prefix = "gallery.bulkhead")
+public class GalleryBulkheadProperties {
+    /**
+     * Reading the uploads and streaming the full size images, every slow client holds one of these threads.
+     */
+    private Pool imageIo = new Pool(64, 256);
+
+    /**
+     * Generating the thumbnails, CPU bound. 0 threads uses one per cpu.
+     */
+    private Pool imageProcessing = new Pool(0, 64);
+
+    /**
+     * Deleting the files of bulk deletes in parallel, each task mostly waits on the disk.
+     */
+    private Pool storageIo = new Pool(8, 64);
+
+    /**
+     * Thread pool settings. Tasks that don't fit in the queue are rejected.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        private int threads;
+        private int queueCapacity;
+    }
+}
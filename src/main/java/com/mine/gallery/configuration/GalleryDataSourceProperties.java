@@ -0,0 +1,61 @@
+package com.mine.gallery.configuration;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Additional data source settings under the "gallery.datasource" prefix.
+ * The primary database (shard 0) is still configured through "spring.datasource".
+ *
+ * @author TrusTio
+ */
+@Data
+@ConfigurationProperties(prefix = "gallery.datasource")
+public class GalleryDataSourceProperties {
+    /**
+     * Read replicas of the primary database, read only transactions are balanced between them.
+     */
+    private List<Node> replicas = new ArrayList<>();
+
+    /**
+     * Additional shards, the primary database is shard 0 and these are shard 1, 2, ...
+     * Users, galleries and images are spread between the shards by user id.
+     * Changing the number of shards requires moving the existing data.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * How long the reads of a user stay on the primary after he wrote something.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    /**
+     * Connections of every database reserved for the image uploads and downloads, in a pool separate
+     * from the one of the API. 0 shares a single pool between them.
+     */
+    private int imageConnections = 4;
+
+    /**
+     * Connection settings of a single database. Pool settings are inherited from "spring.datasource.hikari".
+     */
+    @Data
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+    }
+
+    /**
+     * Connection settings of a shard and its read replicas.
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class Shard extends Node {
+        private List<Node> replicas = new ArrayList<>();
+    }
+}
@@ -0,0 +1,48 @@
+package com.mine.gallery.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Rate limit settings under the "gallery.rate-limit" prefix.
+ *
+ * @author TrusTio
+ */
+@Data
+@ConfigurationProperties(prefix = "gallery.rate-limit")
+public class GalleryRateLimitProperties {
+    private boolean enabled = true;
+
+    /**
+     * Number of clients tracked individually per endpoint class.
+     */
+    private int maxKeys = 100_000;
+
+    /**
+     * Login and sign up, limited per IP address.
+     */
+    private Limit auth = new Limit(1, 5);
+
+    /**
+     * Uploads and other changes under /api/v1, limited per user or per IP address for anonymous requests.
+     */
+    private Limit upload = new Limit(5, 20);
+
+    /**
+     * Reads under /api/v1, limited per user or per IP address for anonymous requests.
+     */
+    private Limit read = new Limit(50, 200);
+
+    /**
+     * Token bucket settings.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private double requestsPerSecond;
+        private int burst;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mine.gallery.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Faults injected into the image storage under the "gallery.storage.fault-injection" prefix,
+ * see {@link com.mine.gallery.persistence.storage.FaultInjectingFileStore}.
+ *
+ * @author TrusTio
+ */
+@Data
+@ConfigurationProperties(prefix = "gallery.storage.fault-injection")
+public class GalleryStorageFaultProperties {
+    private boolean enabled = false;
+
+    /**
+     * Opening a stored file, for the downloads.
+     */
+    private Fault read = new Fault();
+
+    /**
+     * Writing an upload or its thumbnail.
+     */
+    private Fault write = new Fault();
+
+    /**
+     * Deleting an image or its thumbnail.
+     */
+    private Fault delete = new Fault();
+
+    /**
+     * Every operation waits for the latency plus a uniformly random part of the jitter,
+     * then fails with the error rate.
+     */
+    @Data
+    public static class Fault {
+        private Duration latency = Duration.ZERO;
+        private Duration jitter = Duration.ZERO;
+        private double errorRate;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mine.gallery.configuration;
+
+import com.mine.gallery.persistence.metrics.RepositoryMetricsAspect;
+import com.mine.gallery.security.TokenAuthenticationCache;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the application metrics that the auto-configuration doesn't cover.
+ * Everything is exported through the /actuator/prometheus end point.
+ * <p>
+ * The server, the connection pools and the user caches are instrumented by Spring Boot,
+ * the image service, the storage and the token parsing time themselves.
+ *
+ * @author TrusTio
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Enables the {@link io.micrometer.core.annotation.Timed} annotations.
+     *
+     * @param meterRegistry MeterRegistry
+     * @return TimedAspect
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public RepositoryMetricsAspect repositoryMetricsAspect(MeterRegistry meterRegistry) {
+        return new RepositoryMetricsAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder tokenCacheMetrics(TokenAuthenticationCache tokenAuthenticationCache) {
+        return registry -> {
+            Gauge.builder("gallery.security.token-cache.size", tokenAuthenticationCache,
+                    TokenAuthenticationCache::size)
+                    .description("Verified tokens in the cache")
+                    .register(registry);
+            FunctionCounter.builder("gallery.security.token-cache.requests", tokenAuthenticationCache,
+                    TokenAuthenticationCache::hitCount)
+                    .tag("result", "hit")
+                    .description("Lookups of the verified tokens")
+                    .register(registry);
+            FunctionCounter.builder("gallery.security.token-cache.requests", tokenAuthenticationCache,
+                    TokenAuthenticationCache::missCount)
+                    .tag("result", "miss")
+                    .description("Lookups of the verified tokens")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.mine.gallery.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mine.gallery.security.RateLimitFilter;
+import com.mine.gallery.security.RateLimitFilter.EndpointClass;
+import com.mine.gallery.security.RateLimiter;
+import com.mine.gallery.security.TokenAuthenticationCache;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Registers the {@link RateLimitFilter} in front of the Spring Security filter chain,
+ * so it also covers the end points ignored by the security configuration.
+ *
+ * @author TrusTio
+ */
+@Configuration
+@EnableConfigurationProperties(GalleryRateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(GalleryRateLimitProperties properties,
+                                                                   TokenAuthenticationCache tokenAuthenticationCache,
+                                                                   ObjectMapper objectMapper) {
+        Map<EndpointClass, RateLimiter> limiters = new EnumMap<>(EndpointClass.class);
+        limiters.put(EndpointClass.AUTH, limiter(properties.getAuth(), properties.getMaxKeys()));
+        limiters.put(EndpointClass.UPLOAD, limiter(properties.getUpload(), properties.getMaxKeys()));
+        limiters.put(EndpointClass.READ, limiter(properties.getRead(), properties.getMaxKeys()));
+
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(limiters, tokenAuthenticationCache, objectMapper));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        registration.setEnabled(properties.isEnabled());
+
+        return registration;
+    }
+
+    private RateLimiter limiter(GalleryRateLimitProperties.Limit limit, int maxKeys) {
+        return new RateLimiter(limit.getRequestsPerSecond(), limit.getBurst(), maxKeys);
+    }
+}
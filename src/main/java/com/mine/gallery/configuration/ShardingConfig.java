@@ -0,0 +1,49 @@
+package com.mine.gallery.configuration;
+
+import com.mine.gallery.persistence.shard.ShardAwareTableGenerator;
+import com.mine.gallery.persistence.shard.ShardKeyAspect;
+import com.mine.gallery.persistence.shard.ShardMap;
+import com.mine.gallery.persistence.shard.ShardSchemaIntegrator;
+import com.mine.gallery.persistence.shard.ShardTemplate;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+
+/**
+ * Configures the routing of the data access to the shards.
+ *
+ * @author TrusTio
+ */
+@Configuration
+public class ShardingConfig {
+
+    @Bean
+    public ShardKeyAspect shardKeyAspect(ShardMap shardMap) {
+        return new ShardKeyAspect(shardMap);
+    }
+
+    @Bean
+    public ShardTemplate shardTemplate(ShardMap shardMap, PlatformTransactionManager transactionManager) {
+        return new ShardTemplate(shardMap, transactionManager);
+    }
+
+    /**
+     * Passes the number of shards to the {@link ShardAwareTableGenerator} and
+     * applies the schema changes to every shard.
+     *
+     * @param shardMap {@link ShardMap}
+     * @return HibernatePropertiesCustomizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernatePropertiesCustomizer(ShardMap shardMap) {
+        return properties -> {
+            properties.put(ShardAwareTableGenerator.SHARD_COUNT, shardMap.getShardCount());
+            properties.put("hibernate.integrator_provider",
+                    (IntegratorProvider) () -> Collections.singletonList(new ShardSchemaIntegrator(shardMap)));
+        };
+    }
+}
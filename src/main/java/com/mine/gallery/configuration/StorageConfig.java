@@ -0,0 +1,32 @@
+package com.mine.gallery.configuration;
+
+import com.mine.gallery.persistence.storage.FaultInjectingFileStore;
+import com.mine.gallery.persistence.storage.FileStore;
+import com.mine.gallery.persistence.storage.LocalFileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the {@link FileStore} of the image storage: the local file system, behind a
+ * {@link FaultInjectingFileStore} when "gallery.storage.fault-injection.enabled" is set.
+ *
+ * @author TrusTio
+ */
+@Configuration
+@EnableConfigurationProperties(GalleryStorageFaultProperties.class)
+@Slf4j
+public class StorageConfig {
+    @Bean
+    public FileStore fileStore(GalleryStorageFaultProperties faults) {
+        FileStore fileStore = new LocalFileStore();
+        if (!faults.isEnabled()) {
+            return fileStore;
+        }
+
+        log.warn("Injecting faults into the image storage: read {}, write {}, delete {}",
+                faults.getRead(), faults.getWrite(), faults.getDelete());
+        return new FaultInjectingFileStore(fileStore, faults);
+    }
+}
@@ -0,0 +1,156 @@
+package com.mine.gallery.controller.v1;
+
+import com.mine.gallery.security.BoundedPasswordEncoder;
+import com.mine.gallery.service.ProfilingService;
+import com.mine.gallery.service.StorageQuotaService;
+import com.mine.gallery.service.dto.RecordingDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Admin controller that exposes end points for tuning the application at runtime
+ * Only users with role ADMIN can access these end points.
+ *
+ * @author TrusTio
+ */
+@RestController
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@RequestMapping(path = "api/v1/admin")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+@Validated
+@Slf4j
+public class AdminController {
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+    @Autowired
+    private ProfilingService profilingService;
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    /**
+     * A GET method that fetches the BCrypt strength used for new password hashes.
+     *
+     * @return ResponseEntity<Integer>
+     */
+    @GetMapping("/password-strength")
+    public ResponseEntity<Integer> getPasswordStrength() {
+        return new ResponseEntity<>(passwordEncoder.getStrength(), HttpStatus.OK);
+    }
+
+    /**
+     * A PUT method that changes the BCrypt strength used for new password hashes.
+     * Existing passwords with a lower strength are rehashed when their users log in.
+     * Every step doubles the cost of a hash, so the strength is capped at 14, about a second per hash.
+     *
+     * @param strength Integer BCrypt strength between 4 and 14
+     * @return ResponseEntity<String>
+     */
+    @PutMapping("/password-strength")
+    public ResponseEntity<String> setPasswordStrength(@RequestParam("strength") @Min(4) @Max(14) Integer strength) {
+        passwordEncoder.setStrength(strength);
+        log.info("Password strength changed to {}", strength);
+
+        return new ResponseEntity<>("Password strength changed successfully!", HttpStatus.OK);
+    }
+
+    /**
+     * A POST method that recomputes the storage usage of all users from their images,
+     * e.g. to count the images uploaded before the storage quota was introduced.
+     *
+     * @return ResponseEntity<String>
+     */
+    @PostMapping("/storage/repair")
+    public ResponseEntity<String> repairStorageUsage() {
+        int updated = storageQuotaService.repairAll();
+
+        return new ResponseEntity<>("Recomputed the storage usage of " + updated + " users.", HttpStatus.OK);
+    }
+
+    /**
+     * A POST method that starts a Java Flight Recorder recording, which stops by itself after the given duration.
+     * Only one recording runs at a time.
+     *
+     * @param profile String JFR configuration, "default" for low overhead or "profile" for more detail
+     * @param seconds Long duration of the recording in seconds
+     * @return ResponseEntity<RecordingDTO>
+     */
+    @PostMapping("/profiling/recordings")
+    public ResponseEntity<RecordingDTO> startRecording(@RequestParam(defaultValue = "default") String profile,
+                                                       @RequestParam(defaultValue = "60") Long seconds) {
+        RecordingDTO recording = profilingService.start(profile, Duration.ofSeconds(seconds));
+        log.info("Flight recording {} started", recording.getId());
+
+        return new ResponseEntity<>(recording, HttpStatus.CREATED);
+    }
+
+    /**
+     * A GET method that fetches the recent flight recordings.
+     *
+     * @return List<RecordingDTO>
+     */
+    @GetMapping("/profiling/recordings")
+    public List<RecordingDTO> getRecordings() {
+        return profilingService.getRecordings();
+    }
+
+    /**
+     * A POST method that stops a running flight recording.
+     *
+     * @param recordingId Long id of the recording
+     * @return ResponseEntity<RecordingDTO>
+     */
+    @PostMapping("/profiling/recordings/{recordingId}/stop")
+    public ResponseEntity<RecordingDTO> stopRecording(@PathVariable("recordingId") Long recordingId) {
+        return new ResponseEntity<>(profilingService.stop(recordingId), HttpStatus.OK);
+    }
+
+    /**
+     * A GET method that downloads the .jfr file of a finished flight recording.
+     *
+     * @param recordingId Long id of the recording
+     * @return ResponseEntity<FileSystemResource>
+     */
+    @GetMapping("/profiling/recordings/{recordingId}")
+    public ResponseEntity<FileSystemResource> downloadRecording(@PathVariable("recordingId") Long recordingId) {
+        return jfrFile(profilingService.getRecordingFile(recordingId));
+    }
+
+    /**
+     * A GET method that dumps and downloads the events kept by the continuous flight recording.
+     *
+     * @return ResponseEntity<FileSystemResource>
+     */
+    @GetMapping("/profiling/continuous")
+    public ResponseEntity<FileSystemResource> downloadContinuousRecording() {
+        return jfrFile(profilingService.dumpContinuous());
+    }
+
+    private ResponseEntity<FileSystemResource> jfrFile(FileSystemResource file) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFilename()).build().toString())
+                .body(file);
+    }
+}
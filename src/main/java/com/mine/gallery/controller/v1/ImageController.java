@@ -2,7 +2,11 @@ package com.mine.gallery.controller.v1;
 
 import com.mine.gallery.security.IdUsernamePasswordAuthenticationToken;
 import com.mine.gallery.service.ImageService;
+import com.mine.gallery.service.dto.BulkImageDTO;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpStatus;
@@ -10,16 +14,26 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.CurrentSecurityContext;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.support.MissingServletRequestPartException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
 
 /**
  * Image controller that exposes gallery end points
@@ -33,48 +47,73 @@ import org.springframework.web.multipart.MultipartFile;
 public class ImageController {
     @Autowired
     private ImageService imageService;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     /**
      * A POST method that lets the user upload an image
      * to his own gallery.
+     * <p>
+     * The multipart body is resolved lazily inside the returned Callable, so reading the upload from a slow client
+     * happens on the image I/O executor instead of holding a request thread of the connector.
      *
-     * @param image          MultipartFile image to be uploaded
-     * @param galleryId      Long id of the gallery
+     * @param request        MultipartHttpServletRequest with the "imageFile" part and the "galleryId" parameter
      * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds data for the current user
-     * @return ResponseEntity<String>
+     * @return Callable<ResponseEntity<String>>
      */
     @PostMapping(consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
-    public ResponseEntity<String> uploadImage(@RequestParam("imageFile") MultipartFile image,
-                                              @RequestParam("galleryId") Long galleryId,
-                                              @CurrentSecurityContext(expression = "authentication")
-                                                      IdUsernamePasswordAuthenticationToken authentication) {
-        imageService.save(image, galleryId, authentication.getId());
-        log.info("Image uploaded successfully!");
+    public Callable<ResponseEntity<String>> uploadImage(MultipartHttpServletRequest request,
+                                                        @CurrentSecurityContext(expression = "authentication")
+                                                                IdUsernamePasswordAuthenticationToken authentication) {
+        return () -> {
+            MultipartFile image = request.getFile("imageFile");
+            if (image == null) {
+                throw new MissingServletRequestPartException("imageFile");
+            }
+            String galleryId = request.getParameter("galleryId");
+            if (galleryId == null) {
+                throw new MissingServletRequestParameterException("galleryId", "Long");
+            }
+
+            imageService.save(image, parseGalleryId(galleryId), authentication.getId());
+            log.info("Image uploaded successfully!");
 
-        return new ResponseEntity<>("Image uploaded successfully!", HttpStatus.CREATED);
+            return new ResponseEntity<>("Image uploaded successfully!", HttpStatus.CREATED);
+        };
     }
 
     /**
      * A GET method that fetches a specific image.
      * Users with role USER can access only their own images.
      * Users with role ADMIN can access all images.
+     * <p>
+     * The lookup runs on the request thread, the file is streamed to the client from the image I/O executor.
      *
      * @param userId         Long id of the user of the image
      * @param galleryId      Long id of the gallery
      * @param imageName      String name of the image
      * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds data for the current user
-     * @return FileSystemResource
+     * @return ResponseEntity<StreamingResponseBody>
      */
     @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
     @GetMapping(value = "/{userId}/{galleryId}/{imageName}", produces = MediaType.IMAGE_JPEG_VALUE)
-    public FileSystemResource retrieveImage(@PathVariable("userId") Long userId,
-                                            @PathVariable("galleryId") Long galleryId,
-                                            @PathVariable("imageName") String imageName,
-                                            @CurrentSecurityContext(expression = "authentication")
-                                                    IdUsernamePasswordAuthenticationToken authentication) {
+    public ResponseEntity<StreamingResponseBody> retrieveImage(@PathVariable("userId") Long userId,
+                                                               @PathVariable("galleryId") Long galleryId,
+                                                               @PathVariable("imageName") String imageName,
+                                                               @CurrentSecurityContext(expression = "authentication")
+                                                                       IdUsernamePasswordAuthenticationToken authentication)
+            throws IOException {
+        FileSystemResource image = imageService.findImage(userId, galleryId, imageName);
         log.info("Image fetched successfully!");
 
-        return imageService.findImage(userId, galleryId, imageName);
+        return ResponseEntity.ok()
+                .contentLength(image.contentLength())
+                .body(outputStream -> {
+                    try (InputStream content = image.getInputStream()) {
+                        meterRegistry.counter("gallery.storage.bytes", "operation", "read")
+                                .increment(IOUtils.copyLarge(content, outputStream));
+                    }
+                });
     }
 
     /**
@@ -151,4 +190,56 @@ public class ImageController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    /**
+     * POST method that deletes multiple images of a user at once.
+     * Users with role USER can delete only their own images.
+     * Users with role ADMIN can delete any images.
+     *
+     * @param userId         Long id of the user of the images
+     * @param bulkImageDTO   {@link BulkImageDTO} with the ids of the images
+     * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds data for the current user
+     * @return ResponseEntity<String>
+     */
+    @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/{userId}/bulk-delete")
+    public ResponseEntity<String> deleteImages(@PathVariable("userId") Long userId,
+                                               @Valid @RequestBody BulkImageDTO bulkImageDTO,
+                                               @CurrentSecurityContext(expression = "authentication")
+                                                       IdUsernamePasswordAuthenticationToken authentication) {
+        int deleted = imageService.deleteImages(userId, bulkImageDTO.getImageIds());
+        log.info("{} images deleted successfully!", deleted);
+
+        return new ResponseEntity<>(deleted + " images deleted successfully!", HttpStatus.OK);
+    }
+
+    /**
+     * PATCH method that moves multiple images of a user to another of their galleries.
+     * Users with role USER can move only their own images.
+     * Users with role ADMIN can move any images.
+     *
+     * @param userId         Long id of the user of the images
+     * @param bulkImageDTO   {@link BulkImageDTO} with the ids of the images and the id of the target gallery
+     * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds data for the current user
+     * @return ResponseEntity<String>
+     */
+    @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "/{userId}/bulk-move")
+    public ResponseEntity<String> moveImages(@PathVariable("userId") Long userId,
+                                             @Valid @RequestBody BulkImageDTO bulkImageDTO,
+                                             @CurrentSecurityContext(expression = "authentication")
+                                                     IdUsernamePasswordAuthenticationToken authentication) {
+        int moved = imageService.moveImages(userId, bulkImageDTO.getImageIds(), bulkImageDTO.getGalleryId());
+        log.info("{} images moved successfully!", moved);
+
+        return new ResponseEntity<>(moved + " images moved successfully!", HttpStatus.OK);
+    }
+
+    // resolved by hand inside the Callable, so it fails with a 400 like a bound parameter would
+    private static Long parseGalleryId(String galleryId) {
+        try {
+            return Long.valueOf(galleryId);
+        } catch (NumberFormatException e) {
+            throw new TypeMismatchException(galleryId, Long.class, e);
+        }
+    }
 }
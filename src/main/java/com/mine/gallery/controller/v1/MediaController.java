@@ -0,0 +1,94 @@
+package com.mine.gallery.controller.v1;
+
+import com.mine.gallery.security.ImageUrlSigner;
+import com.mine.gallery.service.ImageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Media controller that serves the images through the signed urls
+ * returned by the image and gallery end points.
+ * The end points are not behind the token authentication, the signature of the url is the only check.
+ *
+ * @author TrusTio
+ */
+@RestController
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@RequestMapping(path = "api/v1/media")
+public class MediaController {
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * A GET method that fetches the image using a signed url.
+     * The file is streamed to the client from the image I/O executor, so slow clients don't hold a request thread.
+     *
+     * @param key       String encoded storage location of the image
+     * @param expires   long expiry time of the url, in epoch seconds
+     * @param signature String signature of the url
+     * @return ResponseEntity<StreamingResponseBody>
+     */
+    @GetMapping(value = "/" + ImageUrlSigner.ORIGINAL + "/{key}")
+    public ResponseEntity<StreamingResponseBody> retrieveImage(@PathVariable("key") String key,
+                                                               @RequestParam("expires") long expires,
+                                                               @RequestParam("signature") String signature)
+            throws IOException {
+        FileSystemResource image = imageService.findSignedImage(ImageUrlSigner.ORIGINAL, key, expires, signature);
+
+        return cacheable(image, expires)
+                .contentLength(image.contentLength())
+                .body(outputStream -> {
+                    try (InputStream content = image.getInputStream()) {
+                        meterRegistry.counter("gallery.storage.bytes", "operation", "read")
+                                .increment(IOUtils.copyLarge(content, outputStream));
+                    }
+                });
+    }
+
+    /**
+     * A GET method that fetches the thumbnail of the image using a signed url.
+     *
+     * @param key       String encoded storage location of the image
+     * @param expires   long expiry time of the url, in epoch seconds
+     * @param signature String signature of the url
+     * @return ResponseEntity<FileSystemResource>
+     */
+    @GetMapping(value = "/" + ImageUrlSigner.THUMBNAIL + "/{key}")
+    public ResponseEntity<FileSystemResource> retrieveImageThumbnail(@PathVariable("key") String key,
+                                                                     @RequestParam("expires") long expires,
+                                                                     @RequestParam("signature") String signature) {
+        FileSystemResource thumbnail = imageService.findSignedImage(ImageUrlSigner.THUMBNAIL, key, expires, signature);
+
+        return cacheable(thumbnail, expires).body(thumbnail);
+    }
+
+    /**
+     * The content behind a signed url never changes, so it can be cached publicly until the url expires.
+     */
+    private ResponseEntity.BodyBuilder cacheable(FileSystemResource resource, long expires) {
+        long maxAge = Math.max(0, expires - System.currentTimeMillis() / 1000);
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic())
+                .contentType(MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM));
+    }
+}
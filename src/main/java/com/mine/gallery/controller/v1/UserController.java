@@ -1,15 +1,21 @@
 package com.mine.gallery.controller.v1;
 
 import com.mine.gallery.security.IdUsernamePasswordAuthenticationToken;
+import com.mine.gallery.security.ImageUrlSigner;
+import com.mine.gallery.service.ChangeFeedService;
 import com.mine.gallery.service.GalleryService;
 import com.mine.gallery.service.ImageService;
+import com.mine.gallery.service.ListingVersions;
 import com.mine.gallery.service.UserService;
+import com.mine.gallery.service.dto.ChangesDTO;
 import com.mine.gallery.service.dto.ImageDTO;
+import com.mine.gallery.service.dto.ListingDTO;
 import com.mine.gallery.service.dto.SignupUserDTO;
 import com.mine.gallery.service.dto.UserDTO;
 import com.mine.gallery.service.dto.UserGalleriesDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,9 +30,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.function.LongFunction;
 
 /**
  * User controller that exposes user end points
@@ -44,6 +52,12 @@ public class UserController {
     private GalleryService galleryService;
     @Autowired
     private ImageService imageService;
+    @Autowired
+    private ImageUrlSigner imageUrlSigner;
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private ListingVersions listingVersions;
 
 
     /**
@@ -155,19 +169,22 @@ public class UserController {
      * @param sortBy         String sort by field
      * @param userId         Long id of the user to be fetched
      * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds information for the currently logged in user.
-     * @return {@link List<UserGalleriesDTO>} of the gallery names
+     * @param webRequest     ServletWebRequest checked for an up to date ETag
+     * @return {@link List<UserGalleriesDTO>} of the gallery names, with a weak ETag
      */
     @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
     @GetMapping(path = "/{userId}/galleries")
-    public List<UserGalleriesDTO> getUserGalleries(@RequestParam(defaultValue = "0") Integer pageNo,
-                                                   @RequestParam(defaultValue = "20") Integer pageSize,
-                                                   @RequestParam(defaultValue = "id") String sortBy,
-                                                   @PathVariable("userId") Long userId,
-                                                   @CurrentSecurityContext(expression = "authentication")
-                                                           IdUsernamePasswordAuthenticationToken authentication) {
+    public ResponseEntity<List<UserGalleriesDTO>> getUserGalleries(@RequestParam(defaultValue = "0") Integer pageNo,
+                                                                   @RequestParam(defaultValue = "20") Integer pageSize,
+                                                                   @RequestParam(defaultValue = "id") String sortBy,
+                                                                   @PathVariable("userId") Long userId,
+                                                                   @CurrentSecurityContext(expression = "authentication")
+                                                                           IdUsernamePasswordAuthenticationToken authentication,
+                                                                   ServletWebRequest webRequest) {
         log.info("User Galleries fetched successfully!");
 
-        return galleryService.getUserGalleries(pageNo, pageSize, sortBy, userId);
+        return withETag(userId, webRequest,
+                version -> galleryService.getUserGalleries(pageNo, pageSize, sortBy, userId, version));
     }
 
     /**
@@ -181,20 +198,23 @@ public class UserController {
      * @param userId         Long id of the user to be fetched
      * @param galleryId      Long id of the gallery
      * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds information for the currently logged in user.
-     * @return {@link List<ImageDTO>}
+     * @param webRequest     ServletWebRequest checked for an up to date ETag
+     * @return {@link List<ImageDTO>}, with a weak ETag
      */
     @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
     @GetMapping(path = "/{userId}/galleries/{galleryId}")
-    public List<ImageDTO> getUserGalleryImages(@RequestParam(defaultValue = "0") Integer pageNo,
-                                               @RequestParam(defaultValue = "20") Integer pageSize,
-                                               @RequestParam(defaultValue = "id") String sortBy,
-                                               @PathVariable("userId") Long userId,
-                                               @PathVariable("galleryId") Long galleryId,
-                                               @CurrentSecurityContext(expression = "authentication")
-                                                       IdUsernamePasswordAuthenticationToken authentication) {
+    public ResponseEntity<List<ImageDTO>> getUserGalleryImages(@RequestParam(defaultValue = "0") Integer pageNo,
+                                                               @RequestParam(defaultValue = "20") Integer pageSize,
+                                                               @RequestParam(defaultValue = "id") String sortBy,
+                                                               @PathVariable("userId") Long userId,
+                                                               @PathVariable("galleryId") Long galleryId,
+                                                               @CurrentSecurityContext(expression = "authentication")
+                                                                       IdUsernamePasswordAuthenticationToken authentication,
+                                                               ServletWebRequest webRequest) {
         log.info("User Images in Gallery fetched successfully!");
 
-        return imageService.getUserGalleryImages(pageNo, pageSize, sortBy, userId, galleryId);
+        return withETag(userId, webRequest,
+                version -> imageService.getUserGalleryImages(pageNo, pageSize, sortBy, userId, galleryId, version));
     }
 
     /**
@@ -207,19 +227,22 @@ public class UserController {
      * @param sortBy         String sort by field
      * @param userId         Long id of the user to be fetched
      * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds information for the currently logged in user.
-     * @return {@link List<ImageDTO>}
+     * @param webRequest     ServletWebRequest checked for an up to date ETag
+     * @return {@link List<ImageDTO>}, with a weak ETag
      */
     @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
     @GetMapping(path = "/{userId}/images")
-    public List<ImageDTO> getUserImages(@RequestParam(defaultValue = "0") Integer pageNo,
-                                        @RequestParam(defaultValue = "20") Integer pageSize,
-                                        @RequestParam(defaultValue = "id") String sortBy,
-                                        @PathVariable("userId") Long userId,
-                                        @CurrentSecurityContext(expression = "authentication")
-                                                IdUsernamePasswordAuthenticationToken authentication) {
+    public ResponseEntity<List<ImageDTO>> getUserImages(@RequestParam(defaultValue = "0") Integer pageNo,
+                                                        @RequestParam(defaultValue = "20") Integer pageSize,
+                                                        @RequestParam(defaultValue = "id") String sortBy,
+                                                        @PathVariable("userId") Long userId,
+                                                        @CurrentSecurityContext(expression = "authentication")
+                                                                IdUsernamePasswordAuthenticationToken authentication,
+                                                        ServletWebRequest webRequest) {
         log.info("User Images fetched successfully!");
 
-        return imageService.getUserImages(pageNo, pageSize, sortBy, userId);
+        return withETag(userId, webRequest,
+                version -> imageService.getUserImages(pageNo, pageSize, sortBy, userId, version));
     }
 
     /**
@@ -232,20 +255,82 @@ public class UserController {
      * @param sortBy         String sort by field
      * @param userId         Long id of the user to be fetched
      * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds information for the currently logged in user.
-     * @return {@link List<ImageDTO>}
+     * @param webRequest     ServletWebRequest checked for an up to date ETag
+     * @return {@link List<ImageDTO>}, with a weak ETag
      * @return
      */
     @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
     @GetMapping(path = "/{userId}/images/{imageName}")
-    public List<ImageDTO> getUserImagesByName(@RequestParam(defaultValue = "0") Integer pageNo,
-                                              @RequestParam(defaultValue = "20") Integer pageSize,
-                                              @RequestParam(defaultValue = "id") String sortBy,
-                                              @PathVariable("userId") Long userId,
-                                              @PathVariable("imageName") String imageName,
-                                              @CurrentSecurityContext(expression = "authentication")
-                                                      IdUsernamePasswordAuthenticationToken authentication) {
+    public ResponseEntity<List<ImageDTO>> getUserImagesByName(@RequestParam(defaultValue = "0") Integer pageNo,
+                                                              @RequestParam(defaultValue = "20") Integer pageSize,
+                                                              @RequestParam(defaultValue = "id") String sortBy,
+                                                              @PathVariable("userId") Long userId,
+                                                              @PathVariable("imageName") String imageName,
+                                                              @CurrentSecurityContext(expression = "authentication")
+                                                                      IdUsernamePasswordAuthenticationToken authentication,
+                                                              ServletWebRequest webRequest) {
         log.info("User Images fetched successfully!");
 
-        return imageService.getUserImagesByName(pageNo, pageSize, sortBy, userId, imageName);
+        return withETag(userId, webRequest,
+                version -> imageService.getUserImagesByName(pageNo, pageSize, sortBy, userId, imageName));
+    }
+
+    /**
+     * A GET method that fetches the changes to the galleries and images of the user after the given sequence number,
+     * so a client keeping a copy of them only syncs what changed. Without since only the current sequence number
+     * is returned, to be taken before listing everything. Answers with 410 when the changes after since
+     * were compacted, the client should then list everything again.
+     * Users with role USER can only fetch their own changes.
+     *
+     * @param since          Long sequence number of the last change the client has
+     * @param limit          Integer maximum number of changes to be fetched
+     * @param userId         Long id of the user
+     * @param authentication {@link IdUsernamePasswordAuthenticationToken} holds information for the currently logged in user.
+     * @return {@link ChangesDTO}
+     */
+    @PreAuthorize("#userId == #authentication.id || hasRole('ROLE_ADMIN')")
+    @GetMapping(path = "/{userId}/changes")
+    public ChangesDTO getUserChanges(@RequestParam(required = false) Long since,
+                                     @RequestParam(defaultValue = "500") Integer limit,
+                                     @PathVariable("userId") Long userId,
+                                     @CurrentSecurityContext(expression = "authentication")
+                                             IdUsernamePasswordAuthenticationToken authentication) {
+        log.info("User Changes fetched successfully!");
+
+        return changeFeedService.getChanges(userId, since, limit);
+    }
+
+    /**
+     * Answers a listing with a weak ETag made of the current version of the listings of the user and of the
+     * expiry of the signed urls in it, so a client never keeps listing urls that expired. The version is read
+     * on its own first: when the ETag matches the If-None-Match header of the request, the response is a 304
+     * without running the listing. Otherwise the listing is read at that version, and tagged with the version
+     * it was actually read at, so the body and the ETag never disagree.
+     *
+     * @param userId     Long id of the user
+     * @param webRequest ServletWebRequest checked for an up to date ETag
+     * @param listing    LongFunction reading the listing at the given version
+     * @return ResponseEntity with the listing and its ETag
+     */
+    private <T> ResponseEntity<List<T>> withETag(Long userId, ServletWebRequest webRequest,
+                                                 LongFunction<ListingDTO<T>> listing) {
+        long version = listingVersions.current(userId);
+        String eTag = eTag(version);
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(eTag)
+                    .build();
+        }
+
+        ListingDTO<T> read = listing.apply(version);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(eTag(read.getVersion()))
+                .body(read.getItems());
+    }
+
+    private String eTag(long version) {
+        return "W/\"" + version + "-" + imageUrlSigner.currentExpiry() + "\"";
     }
 }
\ No newline at end of file
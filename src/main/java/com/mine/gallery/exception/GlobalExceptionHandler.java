@@ -1,18 +1,26 @@
 package com.mine.gallery.exception;
 
+import com.mine.gallery.exception.change.ChangesCompactedException;
 import com.mine.gallery.exception.gallery.GalleryNotFoundException;
 import com.mine.gallery.exception.gallery.GalleryValidationException;
+import com.mine.gallery.exception.generic.InvalidSignatureException;
+import com.mine.gallery.exception.generic.ServiceOverloadedException;
 import com.mine.gallery.exception.generic.UnauthorizedAccessException;
 import com.mine.gallery.exception.image.ImageNotFoundException;
 import com.mine.gallery.exception.image.ImageValidationException;
+import com.mine.gallery.exception.profiling.ProfilingException;
+import com.mine.gallery.exception.profiling.RecordingNotFoundException;
 import com.mine.gallery.exception.role.RoleNotFoundException;
+import com.mine.gallery.exception.storage.StorageQuotaExceededException;
 import com.mine.gallery.exception.user.LoginException;
+import com.mine.gallery.exception.user.LoginThrottledException;
 import com.mine.gallery.exception.user.SignUpValidationException;
 import com.mine.gallery.exception.user.UserNotFoundException;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
 import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,8 +32,10 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import javax.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * This class extends the {@link ResponseEntityExceptionHandler ResponseEntityExceptionHandler}
@@ -100,6 +110,93 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(apiError);
     }
 
+    /**
+     * Handles {@link LoginThrottledException}
+     *
+     * @param e       {@link LoginThrottledException}
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<Object> handleLoginThrottled(
+            LoginThrottledException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+
+        return ResponseEntity.status(apiError.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(apiError);
+    }
+
+    /**
+     * Handles {@link ServiceOverloadedException} thrown when the image service is at its concurrency limit
+     *
+     * @param e       {@link ServiceOverloadedException}
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Object> handleServiceOverloaded(
+            ServiceOverloadedException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+
+        return ResponseEntity.status(apiError.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(apiError);
+    }
+
+    /**
+     * Handles TaskRejectedException thrown when one of the image executors is saturated
+     *
+     * @param e       TaskRejectedException
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Object> handleTaskRejected(
+            TaskRejectedException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.SERVICE_UNAVAILABLE, "Too many transfers in progress.")
+                .setDetail("Try again later.");
+
+        return ResponseEntity.status(apiError.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(apiError);
+    }
+
+    /**
+     * Handles {@link RecordingNotFoundException}
+     *
+     * @param e       {@link RecordingNotFoundException}
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(RecordingNotFoundException.class)
+    public ResponseEntity<Object> handleRecordingNotFound(
+            RecordingNotFoundException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.NOT_FOUND, e.getMessage());
+
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handles {@link ProfilingException}
+     *
+     * @param e       {@link ProfilingException}
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(ProfilingException.class)
+    public ResponseEntity<Object> handleProfiling(
+            ProfilingException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, e.getMessage());
+
+        return buildResponseEntity(apiError);
+    }
+
     /**
      * Handles {@link ImageNotFoundException}
      *
@@ -180,6 +277,23 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(apiError);
     }
 
+    /**
+     * Handles {@link StorageQuotaExceededException}
+     *
+     * @param e       {@link StorageQuotaExceededException}
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(StorageQuotaExceededException.class)
+    public ResponseEntity<Object> handleStorageQuotaExceeded(
+            StorageQuotaExceededException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.INSUFFICIENT_STORAGE, e.getMessage())
+                .setDetail("Delete some images to free up space.");
+
+        return buildResponseEntity(apiError);
+    }
+
     /**
      * Handles AccessDeniedException thrown by @PreAuthorize method annotation
      *
@@ -229,6 +343,40 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(apiError);
     }
 
+    /**
+     * Handles InvalidSignatureException
+     *
+     * @param e       InvalidSignatureException
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(InvalidSignatureException.class)
+    public ResponseEntity<Object> handleInvalidSignature(
+            InvalidSignatureException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.FORBIDDEN, e.getMessage())
+                .setDetail("Fetch the image again to get a fresh url.");
+
+        return buildResponseEntity(apiError);
+    }
+
+    /**
+     * Handles {@link ChangesCompactedException}
+     *
+     * @param e       {@link ChangesCompactedException}
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(ChangesCompactedException.class)
+    public ResponseEntity<Object> handleChangesCompacted(
+            ChangesCompactedException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.GONE, e.getMessage())
+                .setDetail("Fetch the changes without since, list the galleries again and sync from there.");
+
+        return buildResponseEntity(apiError);
+    }
+
     /**
      * Handles IllegalArgumentException
      *
@@ -261,6 +409,26 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(apiError);
     }
 
+    /**
+     * Handles {@link ConstraintViolationException} of validated request parameters
+     *
+     * @param e       ConstraintViolationException
+     * @param request WebRequest
+     * @return ResponseEntity<Object>
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Object> handleConstraintViolation(
+            ConstraintViolationException e, WebRequest request) {
+
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, "Invalid request parameters.")
+                .setDetail(e.getConstraintViolations().stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+
+        return buildResponseEntity(apiError);
+    }
+
     /**
      * Handles MethodArgumentNotValidException
      *
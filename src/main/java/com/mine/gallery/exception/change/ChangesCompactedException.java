@@ -0,0 +1,12 @@
+package com.mine.gallery.exception.change;
+
+/**
+ * Exception used when the changes a client asks for were already removed from the change log.
+ *
+ * @author TrusTio
+ */
+public class ChangesCompactedException extends RuntimeException {
+    public ChangesCompactedException(long since) {
+        super(String.format("The changes after '%d' are no longer available!", since));
+    }
+}
@@ -0,0 +1,12 @@
+package com.mine.gallery.exception.generic;
+
+/**
+ * Exception used for when a signed url has an invalid signature or has expired.
+ *
+ * @author TrusTio
+ */
+public class InvalidSignatureException extends RuntimeException {
+    public InvalidSignatureException(String message) {
+        super(message);
+    }
+}
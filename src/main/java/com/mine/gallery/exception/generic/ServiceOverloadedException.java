@@ -0,0 +1,12 @@
+package com.mine.gallery.exception.generic;
+
+/**
+ * Exception used for when a call is shed because the service is at its concurrency limit.
+ *
+ * @author TrusTio
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException() {
+        super("The server is busy, try again later.");
+    }
+}
@@ -1,5 +1,7 @@
 package com.mine.gallery.exception.image;
 
+import java.util.Collection;
+
 /**
  * Exception used when image is not found.
  *
@@ -9,4 +11,8 @@ public class ImageNotFoundException extends RuntimeException {
     public ImageNotFoundException(String imageName) {
         super(String.format("Image with name '%s' was not found!", imageName));
     }
+
+    public ImageNotFoundException(Collection<Long> imageIds) {
+        super(String.format("Images with ids '%s' were not found!", imageIds));
+    }
 }
@@ -0,0 +1,12 @@
+package com.mine.gallery.exception.profiling;
+
+/**
+ * Exception used when a flight recording can't be started or downloaded.
+ *
+ * @author TrusTio
+ */
+public class ProfilingException extends RuntimeException {
+    public ProfilingException(String message) {
+        super(message);
+    }
+}
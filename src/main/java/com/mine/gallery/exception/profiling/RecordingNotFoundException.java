@@ -0,0 +1,12 @@
+package com.mine.gallery.exception.profiling;
+
+/**
+ * Exception used when a flight recording is not found.
+ *
+ * @author TrusTio
+ */
+public class RecordingNotFoundException extends RuntimeException {
+    public RecordingNotFoundException(Long recordingId) {
+        super(String.format("Recording with id '%s' was not found!", recordingId));
+    }
+}
@@ -0,0 +1,12 @@
+package com.mine.gallery.exception.storage;
+
+/**
+ * Exception used for when an upload would exceed the storage quota of the user.
+ *
+ * @author TrusTio
+ */
+public class StorageQuotaExceededException extends RuntimeException {
+    public StorageQuotaExceededException(Long userId) {
+        super(String.format("User with id '%d' has exceeded the storage quota!", userId));
+    }
+}
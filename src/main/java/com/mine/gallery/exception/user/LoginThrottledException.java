@@ -0,0 +1,12 @@
+package com.mine.gallery.exception.user;
+
+/**
+ * Exception used for when there are too many logins being processed to accept another one.
+ *
+ * @author TrusTio
+ */
+public class LoginThrottledException extends RuntimeException {
+    public LoginThrottledException() {
+        super("Too many login attempts at the moment, try again later!");
+    }
+}
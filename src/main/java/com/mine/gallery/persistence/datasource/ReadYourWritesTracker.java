@@ -0,0 +1,67 @@
+package com.mine.gallery.persistence.datasource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users wrote to the primary database recently, so their reads can
+ * be kept on the primary until the replicas had the time to catch up.
+ *
+ * @author TrusTio
+ */
+public class ReadYourWritesTracker {
+    private static final int CLEANUP_THRESHOLD = 10_000;
+
+    private final Map<Long, Long> writeDeadlines = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Records a write made by the user, starting a new read-your-writes window for him.
+     *
+     * @param userId Long id of the user, ignored if null
+     */
+    public void recordWrite(Long userId) {
+        if (userId == null || windowNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        writeDeadlines.put(userId, now + windowNanos);
+
+        if (writeDeadlines.size() > CLEANUP_THRESHOLD) {
+            writeDeadlines.values().removeIf(deadline -> deadline - now < 0);
+        }
+    }
+
+    /**
+     * Checks if the user wrote something within the read-your-writes window.
+     *
+     * @param userId Long id of the user
+     * @return true if the reads of the user should go to the primary database
+     */
+    public boolean isWithinWindow(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long deadline = writeDeadlines.get(userId);
+        if (deadline == null) {
+            return false;
+        }
+        if (deadline - System.nanoTime() < 0) {
+            writeDeadlines.remove(userId, deadline);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Duration of the read-your-writes window
+     */
+    public Duration getWindow() {
+        return Duration.ofNanos(windowNanos);
+    }
+}
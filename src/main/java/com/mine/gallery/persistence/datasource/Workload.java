@@ -0,0 +1,22 @@
+package com.mine.gallery.persistence.datasource;
+
+/**
+ * The kinds of work the application does, each one isolated in its own threads and connections
+ * so a heavy one can't starve the others.
+ *
+ * @author TrusTio
+ */
+public enum Workload {
+    /**
+     * The JSON end points, served by the request threads of the server.
+     */
+    API,
+    /**
+     * Reading uploads from and streaming images to the clients.
+     */
+    IMAGE_IO,
+    /**
+     * CPU heavy work on the image content, like generating the thumbnails.
+     */
+    IMAGE_PROCESSING
+}
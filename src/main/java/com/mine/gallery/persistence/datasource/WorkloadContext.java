@@ -0,0 +1,56 @@
+package com.mine.gallery.persistence.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the {@link Workload} the current thread works on. Defaults to {@link Workload#API}.
+ * The threads of the image executors are switched to their workload for every task they run.
+ *
+ * @author TrusTio
+ */
+public final class WorkloadContext {
+    private static final ThreadLocal<Workload> CURRENT_WORKLOAD = ThreadLocal.withInitial(() -> Workload.API);
+
+    private WorkloadContext() {
+    }
+
+    /**
+     * @return {@link Workload} of the current thread
+     */
+    public static Workload current() {
+        return CURRENT_WORKLOAD.get();
+    }
+
+    /**
+     * Runs the task as the given workload, then switches back to the previous one.
+     *
+     * @param workload {@link Workload} to run the task as
+     * @param task     Runnable task to be run
+     */
+    public static void runAs(Workload workload, Runnable task) {
+        Workload previous = CURRENT_WORKLOAD.get();
+        CURRENT_WORKLOAD.set(workload);
+        try {
+            task.run();
+        } finally {
+            CURRENT_WORKLOAD.set(previous);
+        }
+    }
+
+    /**
+     * Runs the work as the given workload, then switches back to the previous one.
+     *
+     * @param workload {@link Workload} to run the work as
+     * @param work     Supplier work to be run
+     * @return the result of the work
+     */
+    public static <T> T callAs(Workload workload, Supplier<T> work) {
+        Workload previous = CURRENT_WORKLOAD.get();
+        CURRENT_WORKLOAD.set(workload);
+        try {
+            return work.get();
+        } finally {
+            CURRENT_WORKLOAD.set(previous);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mine.gallery.persistence.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routing data source that splits the connections of a single database into two pools,
+ * one for the API and one for the image workloads, picked by the {@link WorkloadContext}.
+ * An upload storm can then exhaust only the connections reserved for the images.
+ *
+ * @author TrusTio
+ */
+@Slf4j
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private final DataSource api;
+    private final DataSource images;
+
+    public WorkloadRoutingDataSource(DataSource api, DataSource images) {
+        this.api = api;
+        this.images = images;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Workload.API, api);
+        targets.put(Workload.IMAGE_IO, images);
+        targets.put(Workload.IMAGE_PROCESSING, images);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(api);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return WorkloadContext.current();
+    }
+
+    /**
+     * Closes both pools.
+     */
+    @Override
+    public void close() {
+        closeQuietly(api);
+        closeQuietly(images);
+    }
+
+    private void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("Failed to close data source: {}", e.getMessage());
+            }
+        }
+    }
+}
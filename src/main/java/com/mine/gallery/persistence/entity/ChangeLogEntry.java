@@ -0,0 +1,70 @@
+package com.mine.gallery.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * ChangeLogEntry entity that creates a table in the database which holds the changes to the galleries and images
+ * of the users, numbered by a sequence of every user (see {@link User#getChangeSeq()}).
+ * The entries live on the shard of the user and are compacted by {@link com.mine.gallery.service.ChangeFeedService}.
+ *
+ * @author TrusTio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"userId", "seq"}),
+        indexes = @Index(columnList = "createdAt"))
+@Entity(name = "ChangeLog")
+public class ChangeLogEntry implements Serializable {
+
+    @Id
+    @GeneratedValue(generator = "change_log_id")
+    @GenericGenerator(name = "change_log_id", strategy = "com.mine.gallery.persistence.shard.ShardAwareTableGenerator",
+            parameters = {
+                    @Parameter(name = "table_name", value = "id_generator"),
+                    @Parameter(name = "segment_value", value = "ChangeLog"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled")
+            })
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private ChangeType type;
+
+    private Long galleryId;
+
+    private Long imageId;
+
+    /**
+     * New name of the gallery or image, null for the deletes and moves
+     */
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
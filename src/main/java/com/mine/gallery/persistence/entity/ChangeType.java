@@ -0,0 +1,16 @@
+package com.mine.gallery.persistence.entity;
+
+/**
+ * Contains the types of the changes recorded in the {@link ChangeLogEntry change log}
+ *
+ * @author TrusTio
+ */
+public enum ChangeType {
+    GALLERY_CREATED,
+    GALLERY_RENAMED,
+    GALLERY_DELETED,
+    IMAGE_CREATED,
+    IMAGE_RENAMED,
+    IMAGE_MOVED,
+    IMAGE_DELETED
+}
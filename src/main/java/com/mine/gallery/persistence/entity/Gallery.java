@@ -1,17 +1,22 @@
 package com.mine.gallery.persistence.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
@@ -19,6 +24,7 @@ import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -37,12 +43,42 @@ import java.util.List;
 public class Gallery implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "gallery_id")
+    @GenericGenerator(name = "gallery_id", strategy = "com.mine.gallery.persistence.shard.ShardAwareTableGenerator",
+            parameters = {
+                    @Parameter(name = "table_name", value = "id_generator"),
+                    @Parameter(name = "segment_value", value = "Galleries"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled")
+            })
     private Long id;
 
     @Column(length = 50, nullable = false)
     private String name;
 
+    /**
+     * Denormalized statistics, kept up to date by the image write paths and
+     * recomputed periodically by {@link com.mine.gallery.service.GalleryStatisticsService}.
+     * Only changed by update statements, so a loaded gallery never writes back stale values
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long imageCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long totalBytes;
+
+    @Column(updatable = false)
+    private LocalDateTime lastUpdated;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cover_image_id", updatable = false)
+    private Image coverImage;
+
     @JsonIgnoreProperties("gallery")
     @OneToMany(mappedBy = "gallery", cascade = CascadeType.ALL)
     private List<Image> images;
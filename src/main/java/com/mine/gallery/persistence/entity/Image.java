@@ -5,11 +5,14 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
@@ -29,13 +32,24 @@ import java.io.Serializable;
 public class Image implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "image_id")
+    @GenericGenerator(name = "image_id", strategy = "com.mine.gallery.persistence.shard.ShardAwareTableGenerator",
+            parameters = {
+                    @Parameter(name = "table_name", value = "id_generator"),
+                    @Parameter(name = "segment_value", value = "Images"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled")
+            })
     private Long id;
     @NotNull
     private String name;
     @NotNull
     private String location;
 
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long fileSize;
+
     @JsonIgnoreProperties("images")
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "gallery_id", nullable = false)
@@ -0,0 +1,52 @@
+package com.mine.gallery.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * RevokedToken entity that creates a table in the database which holds the tokens revoked before they expired.
+ * Only the SHA-256 digest of the token is stored. The table lives on the first shard.
+ *
+ * @author TrusTio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+@Entity(name = "RevokedTokens")
+@Table(indexes = @Index(columnList = "revokedAt"))
+public class RevokedToken implements Serializable {
+
+    @Id
+    @GeneratedValue(generator = "revoked_token_id")
+    @GenericGenerator(name = "revoked_token_id", strategy = "com.mine.gallery.persistence.shard.ShardAwareTableGenerator",
+            parameters = {
+                    @Parameter(name = "table_name", value = "id_generator"),
+                    @Parameter(name = "segment_value", value = "RevokedTokens"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled")
+            })
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 32)
+    private byte[] digest;
+
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -5,13 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
@@ -35,7 +37,14 @@ import java.util.Set;
 public class User implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "user_id")
+    @GenericGenerator(name = "user_id", strategy = "com.mine.gallery.persistence.shard.ShardAwareTableGenerator",
+            parameters = {
+                    @Parameter(name = "table_name", value = "id_generator"),
+                    @Parameter(name = "segment_value", value = "Users"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled")
+            })
     private Long id;
 
     @Column(unique = true, length = 20, nullable = false)
@@ -47,6 +56,39 @@ public class User implements Serializable {
     @Column(nullable = false)
     private String password;
 
+    /**
+     * Storage usage of the user, kept by {@link com.mine.gallery.service.StorageQuotaService}.
+     * Only changed by update statements, so a loaded user never writes back stale values.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long storageBytes;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long storageObjects;
+
+    /**
+     * Last sequence number of the change log of the user and the last one removed by the compaction,
+     * see {@link com.mine.gallery.service.ChangeFeedService}. Only changed by update statements,
+     * so a loaded user never writes back a stale value
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long changeSeq;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long compactedSeq;
+
+    /**
+     * Version of the gallery and image listings of the user, see {@link com.mine.gallery.service.ListingVersions}.
+     * Only changed by update statements, so a loaded user never writes back a stale value
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long listingVersion;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -0,0 +1,29 @@
+package com.mine.gallery.persistence.repository;
+
+import com.mine.gallery.persistence.entity.ChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+/**
+ * Repository for the {@link ChangeLogEntry} class/table
+ *
+ * @author TrusTio
+ */
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+    List<ChangeLogEntry> findAllByUserIdAndSeqGreaterThanOrderBySeq(Long userId, long seq, Pageable pageable);
+
+    /**
+     * Deletes the changes of the users in the id range up to their compacted sequence.
+     *
+     * @return int number of deleted rows
+     */
+    @Modifying
+    @Query("delete from ChangeLog c where c.userId between :fromId and :toId "
+            + "and c.seq <= (select u.compactedSeq from Users u where u.id = c.userId)")
+    int deleteCompacted(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
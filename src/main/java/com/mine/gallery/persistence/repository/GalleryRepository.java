@@ -1,10 +1,17 @@
 package com.mine.gallery.persistence.repository;
 
 import com.mine.gallery.persistence.entity.Gallery;
+import com.mine.gallery.persistence.entity.Image;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,9 +29,63 @@ public interface GalleryRepository extends JpaRepository<Gallery, Integer> {
 
     Optional<Gallery> findByNameAndUserId(String name, Long userId);
 
+    @EntityGraph(attributePaths = "coverImage")
     Page<Gallery> findAllByUserId(Long userId, Pageable pageable);
 
     List<Gallery> findAllByUserId(Long userId);
 
     void delete(Gallery gallery);
+
+    /**
+     * Applies the deltas to the gallery counters in a single statement so concurrent
+     * uploads and deletes don't overwrite each other's changes.
+     */
+    @Modifying
+    @Query("update Galleries g set g.imageCount = g.imageCount + :imageDelta, "
+            + "g.totalBytes = g.totalBytes + :bytesDelta, g.lastUpdated = :now where g.id = :galleryId")
+    int updateStatistics(@Param("galleryId") Long galleryId, @Param("imageDelta") long imageDelta,
+                         @Param("bytesDelta") long bytesDelta, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update Galleries g set g.coverImage = :image where g.id = :galleryId and g.coverImage is null")
+    int setCoverImageIfMissing(@Param("galleryId") Long galleryId, @Param("image") Image image);
+
+    @Modifying
+    @Query("update Galleries g set g.coverImage = :replacement where g.id = :galleryId and g.coverImage = :image")
+    int replaceCoverImage(@Param("galleryId") Long galleryId, @Param("image") Image image,
+                          @Param("replacement") Image replacement);
+
+    @Modifying
+    @Query("update Galleries g set g.coverImage = null where g.id = :galleryId")
+    int clearCoverImage(@Param("galleryId") Long galleryId);
+
+    @Modifying
+    @Query("update Galleries g set g.coverImage = null where g.coverImage.id in :imageIds")
+    int clearCoverImages(@Param("imageIds") Collection<Long> imageIds);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "update galleries g set "
+            + "cover_image_id = (select max(i.id) from images i where i.gallery_id = g.id) "
+            + "where g.id in (:galleryIds) and g.cover_image_id is null")
+    int assignMissingCoverImages(@Param("galleryIds") Collection<Long> galleryIds);
+
+    @Query("select min(g.id) from Galleries g")
+    Long findMinId();
+
+    @Query("select max(g.id) from Galleries g")
+    Long findMaxId();
+
+    /**
+     * Recomputes the counters and fixes dangling covers for the galleries in the id range
+     * with set based aggregates over the images table.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "update galleries g set "
+            + "image_count = (select count(*) from images i where i.gallery_id = g.id), "
+            + "total_bytes = (select coalesce(sum(i.file_size), 0) from images i where i.gallery_id = g.id), "
+            + "cover_image_id = coalesce("
+            + "(select i.id from images i where i.id = g.cover_image_id and i.gallery_id = g.id), "
+            + "(select max(i.id) from images i where i.gallery_id = g.id)) "
+            + "where g.id between :fromId and :toId")
+    int recomputeStatistics(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
\ No newline at end of file
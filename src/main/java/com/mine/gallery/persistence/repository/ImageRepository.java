@@ -1,10 +1,16 @@
 package com.mine.gallery.persistence.repository;
 
+import com.mine.gallery.persistence.entity.Gallery;
 import com.mine.gallery.persistence.entity.Image;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -25,5 +31,19 @@ public interface ImageRepository extends JpaRepository<Image, Integer> {
 
     Page<Image> findAllByGalleryIdInAndNameContaining(Long[] galleryId, String name, Pageable pageable);
 
+    Optional<Image> findFirstByGalleryIdAndIdNotOrderByIdDesc(Long galleryId, Long id);
+
     void delete(Image image);
+
+    List<Image> findAllByIdInAndGalleryUserId(Collection<Long> ids, Long userId);
+
+    boolean existsByGalleryIdAndNameIn(Long galleryId, Collection<String> names);
+
+    @Modifying
+    @Query("delete from Images i where i.id in :ids")
+    int bulkDelete(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Images i set i.gallery = :gallery where i.id in :ids")
+    int bulkMove(@Param("ids") Collection<Long> ids, @Param("gallery") Gallery gallery);
 }
\ No newline at end of file
@@ -1,33 +1,91 @@
 package com.mine.gallery.persistence.repository;
 
-import com.mine.gallery.exception.gallery.GalleryValidationException;
-import com.mine.gallery.exception.image.ImageValidationException;
+import com.mine.gallery.configuration.BulkheadConfig;
+import com.mine.gallery.persistence.storage.FileStore;
+import com.mine.gallery.persistence.storage.StoredFileResource;
+import com.mine.gallery.timing.ServerTiming;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import net.coobird.thumbnailator.Thumbnails;
-import net.coobird.thumbnailator.name.Rename;
-import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.FileSystemUtils;
 
-import java.io.File;
-import java.nio.file.FileAlreadyExistsException;
-import java.nio.file.Files;
-import java.nio.file.InvalidPathException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Repository for the image storage.
+ * Repository for the image storage. The files are accessed through the {@link FileStore}.
  *
  * @author TrusTio
  */
 @Repository
 public class ImageStorageRepository {
     private static String THUMBNAIL_PREFIX = "thumbnail.";
+
+    /**
+     * Bounded executor of the file operations of bulk requests, see {@link BulkheadConfig}
+     */
+    private final ThreadPoolTaskExecutor storageIoExecutor;
+    /**
+     * Bounded executor of the thumbnail generation, see {@link BulkheadConfig}
+     */
+    private final Executor imageProcessingExecutor;
+    private final FileStore fileStore;
+
+    private final Timer writeTimer;
+    private final Timer thumbnailTimer;
+    private final Counter bytesWritten;
+
+    public ImageStorageRepository(@Qualifier(BulkheadConfig.STORAGE_IO_EXECUTOR) ThreadPoolTaskExecutor storageIoExecutor,
+                                  @Qualifier(BulkheadConfig.IMAGE_PROCESSING_EXECUTOR) Executor imageProcessingExecutor,
+                                  FileStore fileStore,
+                                  MeterRegistry meterRegistry) {
+        this.storageIoExecutor = storageIoExecutor;
+        this.imageProcessingExecutor = imageProcessingExecutor;
+        this.fileStore = fileStore;
+
+        this.writeTimer = Timer.builder("gallery.image.save")
+                .description("Phases of the image uploads")
+                .tag("phase", "write")
+                .register(meterRegistry);
+        this.thumbnailTimer = Timer.builder("gallery.image.save")
+                .description("Phases of the image uploads")
+                .tag("phase", "thumbnail")
+                .register(meterRegistry);
+        this.bytesWritten = Counter.builder("gallery.storage.bytes")
+                .description("Bytes written to or read from the image storage")
+                .baseUnit("bytes")
+                .tag("operation", "write")
+                .register(meterRegistry);
+    }
+
     /**
-     * Saves the image to local directory for using the userId and gallery name.
+     * Saves the image and its thumbnail to the local directory under the given location.
+     * The location is the storage key of the image and never changes, regardless of the
+     * name or gallery of the image.
+     * <p>
+     * The thumbnail is generated from the content in memory, on the image processing executor, which throws
+     * {@link org.springframework.core.task.TaskRejectedException} when it's saturated.
+     * The write and the thumbnail are timed as phases of the gallery.image.save metric
+     * and as the storage and thumbnail stages of the {@link ServerTiming} of the request.
      *
-     * @param content byte[] content of the file to be saved
+     * @param content  byte[] content of the file to be saved
+     * @param location String location of the file
      * @return String with absolute path to the uploaded file
      */
     public String saveImage(byte[] content, String location) {
@@ -38,47 +96,40 @@ public class ImageStorageRepository {
         String imageLocation = stringBuilder.toString();
 
         Path newFile = Paths.get(imageLocation);
+        long writeStart = System.nanoTime();
         try {
-            Files.createDirectories(newFile.getParent());
-
-            Files.write(newFile, content);
-
-            String absolutePath = newFile.toAbsolutePath().toString();
-            Thumbnails.of(new File(absolutePath))
-                    .size(250, 140)
-                    .toFiles(Rename.PREFIX_DOT_THUMBNAIL);
-
+            fileStore.write(newFile, content);
         } catch (Exception e) {
             throw new RuntimeException(e.getClass().toString());
         }
+        long writeNanos = System.nanoTime() - writeStart;
+        writeTimer.record(writeNanos, TimeUnit.NANOSECONDS);
+        ServerTiming.record(ServerTiming.STORAGE, writeNanos);
+        bytesWritten.increment(content.length);
 
-        return newFile.toAbsolutePath()
-                .toString();
-    }
-
-    /**
-     * Creates a gallery folder on the local directory using location
-     *
-     * @param userId    Long user Id of the owner of the folder
-     * @param galleryId Long id of the folder
-     * @return String with absolute path to the created folder
-     */
-    public String saveGallery(Long userId, Long galleryId) {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder
-                .append(getStoragePath()).append("/")
-                .append(userId).append("/")
-                .append(galleryId);
-        String galleryLocation = stringBuilder.toString();
+        CompletableFuture<Void> thumbnail = CompletableFuture.runAsync(() -> {
+            long thumbnailStart = System.nanoTime();
+            try {
+                ByteArrayOutputStream thumbnailContent = new ByteArrayOutputStream();
+                Thumbnails.of(new ByteArrayInputStream(content))
+                        .size(250, 140)
+                        .toOutputStream(thumbnailContent);
+                fileStore.write(thumbnailOf(newFile), thumbnailContent.toByteArray());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            long thumbnailNanos = System.nanoTime() - thumbnailStart;
+            thumbnailTimer.record(thumbnailNanos, TimeUnit.NANOSECONDS);
+            ServerTiming.record(ServerTiming.THUMBNAIL, thumbnailNanos);
+        }, imageProcessingExecutor);
 
-        Path newFolder = Paths.get(galleryLocation);
         try {
-            Files.createDirectories(newFolder);
-        } catch (Exception e) {
-            throw new RuntimeException(e.getClass().toString());
+            thumbnail.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause().getClass().toString());
         }
 
-        return newFolder.toAbsolutePath()
+        return newFile.toAbsolutePath()
                 .toString();
     }
 
@@ -94,143 +145,107 @@ public class ImageStorageRepository {
                 .append(location);
 
         try {
-            return new FileSystemResource(Paths.get(stringBuilder.toString()));
+            return new StoredFileResource(Paths.get(stringBuilder.toString()), fileStore);
         } catch (Exception e) {
             throw new RuntimeException(e.getClass().toString());
         }
     }
 
     /**
-     * Finds the file in the system using the String path
+     * Finds the thumbnail of the image in the system using the String path of the image
      *
-     * @param userId    Long id of the user
-     * @param galleryId Long id of the gallery
-     * @param imageName String name of image
+     * @param location String location of the image
      * @return FileSystemResource
      */
-    public FileSystemResource findImageThumbnail(Long userId, Long galleryId, String imageName) {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(getStoragePath()).append("/")
-                .append(userId).append("/")
-                .append(galleryId).append("/")
-                .append(THUMBNAIL_PREFIX).append(imageName);
+    public FileSystemResource findImageThumbnail(String location) {
         try {
-            return new FileSystemResource(Paths.get(stringBuilder.toString()));
+            return new StoredFileResource(thumbnailOf(resolve(location)), fileStore);
         } catch (Exception e) {
             throw new RuntimeException(e.getClass().toString());
         }
     }
 
     /**
-     * Deletes the image in the specified location.
+     * Deletes the image in the specified location and its thumbnail.
      *
-     * @param userId    Long id of the user
-     * @param galleryId Long id of the gallery
-     * @param imageName String name of image
+     * @param location String location of the image
      */
-    public void deleteImage(Long userId, Long galleryId, String imageName) {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(getStoragePath()).append("/")
-                .append(userId).append("/")
-                .append(galleryId).append("/");
-        String imageLocation = stringBuilder.toString() + imageName;
-        String thumbnailLocation = stringBuilder.toString() + THUMBNAIL_PREFIX + imageName;
+    public void deleteImage(String location) {
+        Path image = resolve(location);
 
+        long start = System.nanoTime();
         try {
-            Files.delete(Paths.get(imageLocation));
-            Files.delete(Paths.get(thumbnailLocation));
+            fileStore.delete(image);
+            fileStore.delete(thumbnailOf(image));
         } catch (Exception e) {
             throw new RuntimeException(e.getClass().toString());
+        } finally {
+            ServerTiming.record(ServerTiming.STORAGE, System.nanoTime() - start);
         }
     }
 
     /**
-     * Rename image on local storage.
-     *
-     * @param userId       Long id of the user
-     * @param galleryId    Long id of the gallery
-     * @param imageName    String name of image
-     * @param newImageName String new image name
-     * @return String new name of the image with the extension
+     * Refuses a bulk delete up front, while nothing was deleted yet, when the storage executor is saturated.
+     * <p>
+     * Throws {@link TaskRejectedException} if the queue of the storage executor is full.
      */
-    public String renameImage(Long userId, Long galleryId, String imageName, String newImageName) {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(getStoragePath()).append("/")
-                .append(userId).append("/")
-                .append(galleryId).append("/");
-        String imageLocation = stringBuilder.toString() + imageName;
-        String thumbnailLocation = stringBuilder.toString() + THUMBNAIL_PREFIX + imageName;
-
-        try {
-            // image
-            Path source = Paths.get(imageLocation);
-            String extension = FilenameUtils.getExtension(imageLocation);
-            String nameWithExtension = newImageName + "." + extension;
-
-            Files.move(source, source.resolveSibling(nameWithExtension));
-
-            //thumbnail
-            Path thumbnailSource = Paths.get(thumbnailLocation);
-            String thumbnailExtension = FilenameUtils.getExtension(thumbnailLocation);
-            String thumbnailNameWithExtension = THUMBNAIL_PREFIX + newImageName + "." + thumbnailExtension;
-
-            Files.move(thumbnailSource, thumbnailSource.resolveSibling(thumbnailNameWithExtension));
-
-            return nameWithExtension;
-        } catch (FileAlreadyExistsException e) {
-            throw new ImageValidationException("Image with that name already exists.");
-        } catch (InvalidPathException e) {
-            throw new ImageValidationException("Invalid image name.");
-        } catch (Exception e) {
-            throw new RuntimeException(e.getClass().toString());
+    public void checkDeleteCapacity() {
+        if (storageIoExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0) {
+            throw new TaskRejectedException("The storage executor is saturated");
         }
     }
 
     /**
-     * Deletes the gallery at the specified location and it's contents
+     * Deletes the images in the specified locations and their thumbnails in parallel, split in at most
+     * one slice per thread of the storage executor. Files that are already missing are skipped.
+     * <p>
+     * The deletes run after their rows are gone and can't be refused anymore, so a slice the saturated
+     * executor rejects is deleted on the calling thread.
      *
-     * @param userId    Long id of the user owning the gallery
-     * @param galleryId Long id of the gallery
+     * @param locations Collection<String> locations of the images
      */
-    public void deleteGallery(Long userId, Long galleryId) {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(getStoragePath()).append("/")
-                .append(userId).append("/")
-                .append(galleryId);
+    public void deleteImages(Collection<String> locations) {
+        long start = System.nanoTime();
+        List<String> all = new ArrayList<>(locations);
+        int slices = Math.min(all.size(), storageIoExecutor.getMaxPoolSize());
+        List<CompletableFuture<Void>> deletes = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            List<String> slice = all.subList(i * all.size() / slices, (i + 1) * all.size() / slices);
+            Runnable delete = () -> slice.forEach(this::deleteIfExists);
+            try {
+                deletes.add(CompletableFuture.runAsync(delete, storageIoExecutor));
+            } catch (TaskRejectedException e) {
+                deletes.add(CompletableFuture.runAsync(delete, Runnable::run));
+            }
+        }
 
         try {
-            FileSystemUtils.deleteRecursively(Paths.get(stringBuilder.toString()));
-        } catch (Exception e) {
-            throw new RuntimeException(e.getClass().toString());
+            CompletableFuture.allOf(deletes.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause().getClass().toString());
+        } finally {
+            ServerTiming.record(ServerTiming.STORAGE, System.nanoTime() - start);
         }
     }
 
-    /**
-     * Renames a gallery on the local storage.
-     *
-     * @param userId         Long id of the user owning the gallery
-     * @param galleryName    String name of the gallery
-     * @param newGalleryName String new name for the gallery
-     */
-    public void renameGallery(Long userId, String galleryName, String newGalleryName) {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(getStoragePath()).append("/")
-                .append(userId).append("/")
-                .append(galleryName);
-
+    private void deleteIfExists(String location) {
+        Path image = resolve(location);
         try {
-            Path source = Paths.get(stringBuilder.toString());
-
-            Files.move(source, source.resolveSibling(newGalleryName));
-        } catch (FileAlreadyExistsException e) {
-            throw new GalleryValidationException("Gallery with that name already exists.");
-        } catch (InvalidPathException e) {
-            throw new GalleryValidationException("Invalid gallery name.");
-        } catch (Exception e) {
-            throw new RuntimeException(e.getClass().toString());
+            fileStore.deleteIfExists(image);
+            fileStore.deleteIfExists(thumbnailOf(image));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    private Path resolve(String location) {
+        return Paths.get(getStoragePath() + "/" + location);
+    }
+
+    private Path thumbnailOf(Path image) {
+        return image.resolveSibling(THUMBNAIL_PREFIX + image.getFileName());
+    }
+
     /**
      * Gets the local image storage path.
      *
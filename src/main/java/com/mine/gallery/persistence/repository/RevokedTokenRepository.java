@@ -0,0 +1,31 @@
+package com.mine.gallery.persistence.repository;
+
+import com.mine.gallery.persistence.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the {@link RevokedToken} class/table
+ *
+ * @author TrusTio
+ */
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+    boolean existsByDigest(byte[] digest);
+
+    List<RevokedToken> findAllByRevokedAtAfterAndExpiresAtAfter(LocalDateTime revokedAt, LocalDateTime now);
+
+    /**
+     * Deletes the revocations of the tokens that have expired anyway.
+     *
+     * @param now LocalDateTime current time
+     * @return int number of deleted rows
+     */
+    @Modifying
+    @Query("delete from RevokedTokens t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
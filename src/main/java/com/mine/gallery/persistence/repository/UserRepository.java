@@ -4,7 +4,13 @@ import com.mine.gallery.persistence.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -22,4 +28,120 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
+
+    Optional<StorageUsage> findStorageUsageById(Long id);
+
+    List<StorageUsage> findStorageUsageByIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query("update Users u set u.storageBytes = u.storageBytes + :bytes, "
+            + "u.storageObjects = u.storageObjects + :objects where u.id = :userId")
+    int addStorageUsage(@Param("userId") Long userId, @Param("bytes") long bytes, @Param("objects") long objects);
+
+    /**
+     * Adds the images uploaded on an instance to the storage usage of the user, unless they don't fit
+     * in the quota together with the images uploaded on the other instances.
+     *
+     * @param userId       Long id of the user
+     * @param bytes        long total size of the images
+     * @param objects      long number of images
+     * @param quotaBytes   long maximum bytes of the user
+     * @param quotaObjects long maximum number of images of the user
+     * @return int number of updated rows, 0 if the images don't fit or the user doesn't exist
+     */
+    @Modifying
+    @Query("update Users u set u.storageBytes = u.storageBytes + :bytes, u.storageObjects = u.storageObjects + :objects "
+            + "where u.id = :userId and u.storageBytes + :bytes <= :quotaBytes "
+            + "and u.storageObjects + :objects <= :quotaObjects")
+    int addStorageUsageWithinQuota(@Param("userId") Long userId, @Param("bytes") long bytes,
+                                   @Param("objects") long objects, @Param("quotaBytes") long quotaBytes,
+                                   @Param("quotaObjects") long quotaObjects);
+
+    /**
+     * Recomputes the storage usage of the users in the id range with set based aggregates over the images table.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "update users u set "
+            + "storage_bytes = (select coalesce(sum(i.file_size), 0) from images i "
+            + "join galleries g on i.gallery_id = g.id where g.user_id = u.id), "
+            + "storage_objects = (select count(*) from images i "
+            + "join galleries g on i.gallery_id = g.id where g.user_id = u.id) "
+            + "where u.id between :fromId and :toId")
+    int recomputeStorageUsage(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    Optional<ChangeFeedPosition> findChangeFeedPositionById(Long id);
+
+    /**
+     * Takes the next sequence numbers of the change log of the user. The update locks the row of the user
+     * until the transaction ends, so the changes of a user commit in the order of their sequence numbers.
+     *
+     * @param userId Long id of the user
+     * @param count  long number of sequence numbers to take
+     * @return int number of updated rows, 0 if the user doesn't exist
+     */
+    @Modifying
+    @Query("update Users u set u.changeSeq = u.changeSeq + :count where u.id = :userId")
+    int reserveChangeSeqs(@Param("userId") Long userId, @Param("count") long count);
+
+    @Query("select u.changeSeq from Users u where u.id = :userId")
+    long findChangeSeqById(@Param("userId") Long userId);
+
+    @Query("select u.listingVersion from Users u where u.id = :userId")
+    Optional<Long> findListingVersionById(@Param("userId") Long userId);
+
+    /**
+     * Moves the listings of the user to a new version. The update locks the row of the user
+     * until the transaction ends.
+     *
+     * @param userId Long id of the user
+     * @return int number of updated rows, 0 if the user doesn't exist
+     */
+    @Modifying
+    @Query("update Users u set u.listingVersion = u.listingVersion + 1 where u.id = :userId")
+    int moveListingVersion(@Param("userId") Long userId);
+
+    /**
+     * Moves the listings of the owners of the galleries in the id range to a new version.
+     */
+    @Modifying
+    @Query("update Users u set u.listingVersion = u.listingVersion + 1 "
+            + "where u.id in (select g.user.id from Galleries g where g.id between :fromId and :toId)")
+    int moveListingVersionsOfGalleries(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("select min(u.id) from Users u")
+    Long findMinId();
+
+    @Query("select max(u.id) from Users u")
+    Long findMaxId();
+
+    /**
+     * Moves the compacted sequence of the users in the id range past their changes created before the cutoff.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "update users u set "
+            + "compacted_seq = (select max(c.seq) from change_log c where c.user_id = u.id and c.created_at < :cutoff) "
+            + "where u.id between :fromId and :toId "
+            + "and exists (select 1 from change_log c where c.user_id = u.id and c.created_at < :cutoff)")
+    int compactChangeSeqs(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                          @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Projection with the storage usage of a user
+     */
+    interface StorageUsage {
+        Long getId();
+
+        long getStorageBytes();
+
+        long getStorageObjects();
+    }
+
+    /**
+     * Projection with the first and last sequence numbers of the change log of a user
+     */
+    interface ChangeFeedPosition {
+        long getChangeSeq();
+
+        long getCompactedSeq();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.mine.gallery.persistence.shard;
+
+import com.mine.gallery.persistence.datasource.Workload;
+import com.mine.gallery.persistence.datasource.WorkloadContext;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * Pooled table generator that encodes the shard of the row in the generated id,
+ * so that {@code id % shardCount} is the shard the row was created on.
+ * <p>
+ * The id blocks are always taken from the generator table of shard 0,
+ * which keeps the ids unique across all shards.
+ * <p>
+ * A block is fetched on a connection of its own while the transaction keeps its connection. That connection
+ * is taken from the API pool, as an image worker fetching it from the small image pool could wait forever
+ * on the other image workers, which hold the rest of that pool while waiting for the block.
+ *
+ * @author TrusTio
+ */
+public class ShardAwareTableGenerator extends TableGenerator {
+    /**
+     * Hibernate property holding the number of shards.
+     */
+    public static final String SHARD_COUNT = "gallery.shard_count";
+
+    private int shardCount = 1;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+
+        Object configuredShardCount = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings().get(SHARD_COUNT);
+        if (configuredShardCount != null) {
+            shardCount = Integer.parseInt(configuredShardCount.toString());
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (shardCount == 1) {
+            return WorkloadContext.callAs(Workload.API, () -> super.generate(session, object));
+        }
+
+        int shard = ShardContext.currentShard();
+        long sequence = ((Number) ShardContext.callOn(0,
+                () -> WorkloadContext.callAs(Workload.API, () -> super.generate(session, object)))).longValue();
+
+        return sequence * shardCount + shard;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mine.gallery.persistence.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the shard the current thread works with. Defaults to shard 0.
+ *
+ * @author TrusTio
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT_SHARD = ThreadLocal.withInitial(() -> 0);
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return int the shard of the current thread
+     */
+    public static int currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Switches the current thread to the given shard.
+     *
+     * @param shard int shard to switch to
+     * @return int the previous shard, to be restored once done
+     */
+    public static int switchTo(int shard) {
+        int previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        return previous;
+    }
+
+    /**
+     * Runs the work on the given shard, then switches back to the previous one.
+     *
+     * @param shard int shard to run the work on
+     * @param work  Supplier work to be run
+     * @return the result of the work
+     */
+    public static <T> T callOn(int shard, Supplier<T> work) {
+        int previous = switchTo(shard);
+        try {
+            return work.get();
+        } finally {
+            switchTo(previous);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mine.gallery.persistence.shard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the method parameter that decides on which shard the method runs.
+ * The parameter should be a user id or a username, or an object holding one of them
+ * in the given {@link #property()}.
+ *
+ * @author TrusTio
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+    /**
+     * @return String name of the property holding the key, empty if the parameter is the key itself
+     */
+    String property() default "";
+}
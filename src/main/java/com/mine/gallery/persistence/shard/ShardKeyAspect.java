@@ -0,0 +1,82 @@
+package com.mine.gallery.persistence.shard;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the methods having a {@link ShardKey} parameter on the shard of that key.
+ * Ordered before the transaction interceptor, so the transaction is opened on the right shard.
+ *
+ * @author TrusTio
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardKeyAspect {
+    private final ShardMap shardMap;
+    private final Map<Method, KeyParameter> keyParameters = new ConcurrentHashMap<>();
+
+    public ShardKeyAspect(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+
+    @Around("execution(* com.mine.gallery..*(.., @com.mine.gallery.persistence.shard.ShardKey (*), ..))")
+    public Object routeToShard(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = AopUtils.getMostSpecificMethod(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), joinPoint.getTarget().getClass());
+        KeyParameter keyParameter = keyParameters.computeIfAbsent(method, KeyParameter::of);
+
+        Object key = keyParameter.extract(joinPoint.getArgs());
+        int shard = shardMap.shardFor(key);
+
+        int previous = ShardContext.switchTo(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.switchTo(previous);
+        }
+    }
+
+    /**
+     * Position and property of the {@link ShardKey} parameter of a method.
+     */
+    private static final class KeyParameter {
+        private final int index;
+        private final String property;
+
+        private KeyParameter(int index, String property) {
+            this.index = index;
+            this.property = property;
+        }
+
+        private static KeyParameter of(Method method) {
+            Annotation[][] annotations = method.getParameterAnnotations();
+            for (int i = 0; i < annotations.length; i++) {
+                for (Annotation annotation : annotations[i]) {
+                    if (annotation instanceof ShardKey) {
+                        return new KeyParameter(i, ((ShardKey) annotation).property());
+                    }
+                }
+            }
+            throw new IllegalStateException("No @ShardKey parameter on " + method);
+        }
+
+        private Object extract(Object[] args) {
+            Object argument = args[index];
+            if (argument == null || property.isEmpty()) {
+                return argument;
+            }
+            return PropertyAccessorFactory.forBeanPropertyAccess(argument).getPropertyValue(property);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mine.gallery.persistence.shard;
+
+/**
+ * Maps shard keys to shards.
+ * <p>
+ * User ids are generated so that {@code id % shardCount} is the shard of the user
+ * (see {@link ShardAwareTableGenerator}), usernames are mapped by their hash code.
+ * A new user is created on the shard of his username, which keeps both mappings in agreement.
+ *
+ * @author TrusTio
+ */
+public class ShardMap {
+    private final int shardCount;
+
+    public ShardMap(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("There should be at least one shard.");
+        }
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Finds the shard of the given key.
+     *
+     * @param key user id (Number) or username (CharSequence)
+     * @return int the shard holding the data for that key, 0 if the key is null
+     */
+    public int shardFor(Object key) {
+        if (key == null || shardCount == 1) {
+            return 0;
+        }
+        if (key instanceof Number) {
+            return (int) Math.floorMod(((Number) key).longValue(), (long) shardCount);
+        }
+        if (key instanceof CharSequence) {
+            return Math.floorMod(key.toString().hashCode(), shardCount);
+        }
+        throw new IllegalArgumentException("Unsupported shard key type: " + key.getClass().getName());
+    }
+
+    /**
+     * @return int number of shards
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+}
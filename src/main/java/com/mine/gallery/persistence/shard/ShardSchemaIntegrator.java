@@ -0,0 +1,41 @@
+package com.mine.gallery.persistence.shard;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+/**
+ * Hibernate only applies the "hibernate.hbm2ddl.auto" schema action to the connection it gets at startup,
+ * which belongs to shard 0. This integrator applies the same action to the rest of the shards.
+ * <p>
+ * The drop part of "create-drop" is not applied on the other shards.
+ *
+ * @author TrusTio
+ */
+public class ShardSchemaIntegrator implements Integrator {
+    private final ShardMap shardMap;
+
+    public ShardSchemaIntegrator(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+
+    @Override
+    public void integrate(Metadata metadata,
+                          SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        for (int shard = 1; shard < shardMap.getShardCount(); shard++) {
+            ShardContext.callOn(shard, () -> {
+                SchemaManagementToolCoordinator.process(metadata, serviceRegistry,
+                        sessionFactory.getProperties(), action -> {
+                        });
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.mine.gallery.persistence.shard;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs work across all shards (scatter-gather), each shard in its own transaction.
+ *
+ * @author TrusTio
+ */
+public class ShardTemplate {
+    private final ShardMap shardMap;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    public ShardTemplate(ShardMap shardMap, PlatformTransactionManager transactionManager) {
+        this.shardMap = shardMap;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Runs the query on every shard in a read only transaction and collects the results.
+     *
+     * @param query Supplier query to be run
+     * @return List with the result of each shard, ordered by shard
+     */
+    public <T> List<T> scatter(Supplier<T> query) {
+        List<T> results = new ArrayList<>(shardMap.getShardCount());
+        for (int shard = 0; shard < shardMap.getShardCount(); shard++) {
+            results.add(ShardContext.callOn(shard, () -> readOnlyTransaction.execute(status -> query.get())));
+        }
+        return results;
+    }
+
+    /**
+     * Checks the shards one by one until the condition is met on one of them.
+     *
+     * @param condition Supplier condition to be checked
+     * @return true if the condition is met on any shard
+     */
+    public boolean anyMatch(Supplier<Boolean> condition) {
+        for (int shard = 0; shard < shardMap.getShardCount(); shard++) {
+            Boolean matched = ShardContext.callOn(shard, () -> readOnlyTransaction.execute(status -> condition.get()));
+            if (Boolean.TRUE.equals(matched)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the work on every shard, each in its own read-write transaction.
+     *
+     * @param work Runnable work to be run
+     */
+    public void runOnEach(Runnable work) {
+        for (int shard = 0; shard < shardMap.getShardCount(); shard++) {
+            ShardContext.callOn(shard, () -> writeTransaction.execute(status -> {
+                work.run();
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Runs the work on the given shard in its own read-write transaction.
+     *
+     * @param shard int shard to run the work on
+     * @param work  Supplier work to be run
+     * @return the result of the work
+     */
+    public <T> T executeOn(int shard, Supplier<T> work) {
+        return ShardContext.callOn(shard, () -> writeTransaction.execute(status -> work.get()));
+    }
+
+    /**
+     * @return int number of shards
+     */
+    public int getShardCount() {
+        return shardMap.getShardCount();
+    }
+}
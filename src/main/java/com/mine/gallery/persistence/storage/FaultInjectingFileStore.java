@@ -0,0 +1,74 @@
+package com.mine.gallery.persistence.storage;
+
+import com.mine.gallery.configuration.GalleryStorageFaultProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FileStore} decorator that delays and fails the operations of the file store it wraps, to simulate a
+ * degraded disk or a noisy neighbour. The delays block the calling thread, like a slow disk would.
+ * <p>
+ * Failures are thrown as IOExceptions before the operation reaches the wrapped store,
+ * so a failed write or delete leaves the files as they were.
+ *
+ * @author TrusTio
+ */
+public class FaultInjectingFileStore implements FileStore {
+    private final FileStore delegate;
+    private final GalleryStorageFaultProperties properties;
+
+    public FaultInjectingFileStore(FileStore delegate, GalleryStorageFaultProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void write(Path file, byte[] content) throws IOException {
+        inject(properties.getWrite(), "write", file);
+        delegate.write(file, content);
+    }
+
+    @Override
+    public InputStream read(Path file) throws IOException {
+        inject(properties.getRead(), "read", file);
+        return delegate.read(file);
+    }
+
+    @Override
+    public void delete(Path file) throws IOException {
+        inject(properties.getDelete(), "delete", file);
+        delegate.delete(file);
+    }
+
+    @Override
+    public boolean deleteIfExists(Path file) throws IOException {
+        inject(properties.getDelete(), "delete", file);
+        return delegate.deleteIfExists(file);
+    }
+
+    private static void inject(GalleryStorageFaultProperties.Fault fault, String operation, Path file)
+            throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = fault.getLatency().toNanos();
+        if (!fault.getJitter().isZero()) {
+            delay += (long) (random.nextDouble() * fault.getJitter().toNanos());
+        }
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while delaying the " + operation + " of " + file);
+            }
+        }
+
+        if (fault.getErrorRate() > 0 && random.nextDouble() < fault.getErrorRate()) {
+            throw new IOException("Injected " + operation + " failure of " + file);
+        }
+    }
+}
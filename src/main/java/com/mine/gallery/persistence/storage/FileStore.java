@@ -0,0 +1,46 @@
+package com.mine.gallery.persistence.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * File operations of the image storage. The local implementation is {@link LocalFileStore},
+ * {@link FaultInjectingFileStore} can be put in front of it to simulate a slow or failing disk.
+ *
+ * @author TrusTio
+ */
+public interface FileStore {
+    /**
+     * Writes the content to the file, creating its directories and replacing the file if it exists.
+     *
+     * @param file    Path of the file
+     * @param content byte[] content of the file
+     */
+    void write(Path file, byte[] content) throws IOException;
+
+    /**
+     * Opens the file for reading.
+     *
+     * @param file Path of the file
+     * @return InputStream of the file, to be closed by the caller
+     */
+    InputStream read(Path file) throws IOException;
+
+    /**
+     * Deletes the file.
+     * <p>
+     * Throws {@link java.nio.file.NoSuchFileException} if it doesn't exist.
+     *
+     * @param file Path of the file
+     */
+    void delete(Path file) throws IOException;
+
+    /**
+     * Deletes the file if it exists.
+     *
+     * @param file Path of the file
+     * @return true if the file was deleted
+     */
+    boolean deleteIfExists(Path file) throws IOException;
+}
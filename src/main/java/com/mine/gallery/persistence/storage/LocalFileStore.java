@@ -0,0 +1,34 @@
+package com.mine.gallery.persistence.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link FileStore} on the local file system.
+ *
+ * @author TrusTio
+ */
+public class LocalFileStore implements FileStore {
+    @Override
+    public void write(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+    }
+
+    @Override
+    public InputStream read(Path file) throws IOException {
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public void delete(Path file) throws IOException {
+        Files.delete(file);
+    }
+
+    @Override
+    public boolean deleteIfExists(Path file) throws IOException {
+        return Files.deleteIfExists(file);
+    }
+}
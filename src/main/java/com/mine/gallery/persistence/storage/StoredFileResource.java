@@ -0,0 +1,33 @@
+package com.mine.gallery.persistence.storage;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * {@link FileSystemResource} of a file of the image storage, its content is read through the {@link FileStore}.
+ *
+ * @author TrusTio
+ */
+public class StoredFileResource extends FileSystemResource {
+    private final FileStore fileStore;
+
+    public StoredFileResource(Path file, FileStore fileStore) {
+        super(file);
+        this.fileStore = fileStore;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return fileStore.read(getFile().toPath());
+    }
+
+    @Override
+    public ReadableByteChannel readableChannel() throws IOException {
+        return Channels.newChannel(getInputStream());
+    }
+}
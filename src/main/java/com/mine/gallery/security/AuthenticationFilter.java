@@ -1,6 +1,7 @@
 package com.mine.gallery.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.mine.gallery.exception.user.LoginException;
 import com.mine.gallery.service.dto.SignupUserDTO;
 import io.jsonwebtoken.Claims;
@@ -32,6 +33,8 @@ import static com.mine.gallery.security.SecurityConstants.*;
  */
 @Slf4j
 public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
+    private static final ObjectReader CREDENTIALS_READER = new ObjectMapper().readerFor(SignupUserDTO.class);
+
     private final AuthenticationManager authenticationManager;
 
     public AuthenticationFilter(AuthenticationManager authenticationManager) {
@@ -50,8 +53,7 @@ public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
         log.info("Attempting authentication!");
 
         try {
-            SignupUserDTO creds = new ObjectMapper()
-                    .readValue(request.getInputStream(), SignupUserDTO.class);
+            SignupUserDTO creds = CREDENTIALS_READER.readValue(request.getInputStream());
 
             return authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -101,7 +103,7 @@ public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
                         .setHeaderParam("typ","JWT")
                         .setClaims(claims)
                         .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                        .signWith(SignatureAlgorithm.HS512, SECRET.getBytes())
+                        .signWith(SignatureAlgorithm.HS512, SIGNING_KEY)
                         .compact();
                 response.addHeader(HEADER_STRING, TOKEN_PREFIX + token);
                 response.setContentType("application/json");
@@ -1,7 +1,10 @@
 package com.mine.gallery.security;
 
+import com.mine.gallery.timing.ServerTiming;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.AuthorizationServiceException;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,12 +19,12 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.Optional;
 
-import static com.mine.gallery.security.SecurityConstants.SECRET;
+import static com.mine.gallery.security.SecurityConstants.SIGNING_KEY;
 
 /**
  * Authorization filter class that extends {@link BasicAuthenticationFilter}
@@ -30,9 +33,20 @@ import static com.mine.gallery.security.SecurityConstants.SECRET;
  */
 @Slf4j
 public class AuthorizationFilter extends BasicAuthenticationFilter {
-
-    public AuthorizationFilter(AuthenticationManager authenticationManager) {
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final Timer parseTimer;
+
+    public AuthorizationFilter(AuthenticationManager authenticationManager,
+                               TokenAuthenticationCache tokenAuthenticationCache,
+                               TokenRevocationStore tokenRevocationStore,
+                               MeterRegistry meterRegistry) {
         super(authenticationManager);
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.parseTimer = Timer.builder("gallery.security.jwt.parse")
+                .description("Verification of the tokens that weren't cached")
+                .register(meterRegistry);
     }
 
     /**
@@ -45,50 +59,77 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws IOException, ServletException {
-        String token;
-        String header = request.getHeader("Authorization");
-
-        if (header == null || !header.startsWith("Bearer")) {
-            Optional<Cookie> tokenCookie = Optional.empty();
-
-            if (request.getCookies() != null) {
-                tokenCookie = Arrays.stream(request.getCookies())
-                        .filter(cookie -> cookie.getName().equals("token"))
-                        .findFirst();
-
-            }
-            if (tokenCookie.isPresent()) {
-                token = tokenCookie.get().getValue();
-            } else {
-                filterChain.doFilter(request, response);
-                throw new AuthorizationServiceException("Missing token cookie or authorization header or 'bearer' prefix");
-            }
-        } else {
-            token = request.getHeader("Authorization");
+        String token = resolveToken(request);
+        if (token == null) {
+            filterChain.doFilter(request, response);
+            throw new AuthorizationServiceException("Missing token cookie or authorization header or 'bearer' prefix");
         }
         log.info("Checking authorization!");
 
-        IdUsernamePasswordAuthenticationToken authenticationToken = getAuthentication(token);
+        long start = System.nanoTime();
+        IdUsernamePasswordAuthenticationToken authenticationToken =
+                getAuthentication(token, TokenDigest.of(request, token));
+        ServerTiming.record(ServerTiming.AUTH, System.nanoTime() - start);
 
         SecurityContextHolder.getContext().setAuthentication(authenticationToken);
 
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Takes the token from the authorization header if it has the Bearer prefix, otherwise from the token cookie.
+     *
+     * @param request HttpServletRequest
+     * @return String token or null if the request has neither
+     */
+    static String resolveToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith("Bearer")) {
+            return header;
+        }
+
+        if (request.getCookies() != null) {
+            return Arrays.stream(request.getCookies())
+                    .filter(cookie -> cookie.getName().equals("token"))
+                    .map(Cookie::getValue)
+                    .findFirst()
+                    .orElse(null);
+        }
+        return null;
+    }
+
     /**
      * Uses the token provided in the String parameter to
      * get the user and claims(roles) from the it.
+     * Revoked tokens are rejected before anything else using the {@link TokenRevocationStore}.
+     * Tokens that were already verified are taken from the {@link TokenAuthenticationCache}.
      *
      * @param token String token to be used for authentication
      * @return returns new {@link IdUsernamePasswordAuthenticationToken} with user and list of authorities(roles)
      * or null if the token has expired/is empty
      */
-    private IdUsernamePasswordAuthenticationToken getAuthentication(String token) {
+    IdUsernamePasswordAuthenticationToken getAuthentication(String token) {
+        return token == null ? null : getAuthentication(token, TokenDigest.of(token.replace("Bearer", "")));
+    }
+
+    private IdUsernamePasswordAuthenticationToken getAuthentication(String token, ByteBuffer key) {
         if (token != null) {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(SECRET.getBytes())
-                    .parseClaimsJws(token.replace("Bearer", ""))
-                    .getBody();
+            String jwt = token.replace("Bearer", "");
+
+            if (tokenRevocationStore.isRevoked(key)) {
+                log.info("Authorization failed, the token was revoked!");
+                return null;
+            }
+
+            IdUsernamePasswordAuthenticationToken cached = tokenAuthenticationCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            Claims claims = parseTimer.record(() -> Jwts.parser()
+                    .setSigningKey(SIGNING_KEY)
+                    .parseClaimsJws(jwt)
+                    .getBody());
 
             if (new Date(System.currentTimeMillis()).after(claims.getExpiration())) {
                 return null;
@@ -109,7 +150,11 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
             if (user != null) {
                 log.info("Authorization successful!");
 
-                return new IdUsernamePasswordAuthenticationToken(id, user, id, list);
+                IdUsernamePasswordAuthenticationToken authentication =
+                        new IdUsernamePasswordAuthenticationToken(id, user, id, list);
+                tokenAuthenticationCache.put(key, authentication, claims.getExpiration());
+
+                return authentication;
             }
             return null;
         }
@@ -0,0 +1,146 @@
+package com.mine.gallery.security;
+
+import com.mine.gallery.exception.user.LoginThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link PasswordEncoder} that runs BCrypt on a dedicated, bounded pool, so a wave of logins
+ * can only use a fixed number of CPUs and can't take all the request threads with it.
+ * When the queue of the pool is full, or a hash waits for too long, the login is rejected right away
+ * with {@link LoginThrottledException}.
+ * <p>
+ * The BCrypt strength can be changed at runtime. Passwords hashed with a lower strength are
+ * rehashed on the next successful login, through {@link UserDetailsServiceImpl#updatePassword}.
+ *
+ * @author TrusTio
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejections;
+
+    private volatile BCryptPasswordEncoder delegate;
+    private volatile int strength;
+
+    public BoundedPasswordEncoder(@Value("${gallery.security.password.strength:10}") int strength,
+                                  @Value("${gallery.security.password.threads:0}") int threads,
+                                  @Value("${gallery.security.password.queue-capacity:32}") int queueCapacity,
+                                  @Value("${gallery.security.password.timeout-ms:5000}") long timeoutMillis,
+                                  MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("bcrypt-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+        setStrength(strength);
+
+        Gauge.builder("gallery.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a BCrypt thread")
+                .register(meterRegistry);
+        Gauge.builder("gallery.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes being computed")
+                .register(meterRegistry);
+        Gauge.builder("gallery.password.strength", this, BoundedPasswordEncoder::getStrength)
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("gallery.password.hash")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("gallery.password.hash")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("gallery.password.rejected")
+                .description("Password hashes rejected because the BCrypt pool was saturated")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        BCryptPasswordEncoder encoder = delegate;
+        return submit(() -> encodeTimer.recordCallable(() -> encoder.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        BCryptPasswordEncoder encoder = delegate;
+        return submit(() -> matchesTimer.recordCallable(() -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Cheap check, doesn't go through the pool.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Changes the strength used for new hashes.
+     *
+     * @param strength int BCrypt strength (log rounds), between 4 and 31
+     */
+    public void setStrength(int strength) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+    }
+
+    /**
+     * @return int the BCrypt strength used for new hashes
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> hash) {
+        Future<T> result;
+        try {
+            result = executor.submit(hash);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new LoginThrottledException();
+        }
+
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejections.increment();
+            throw new LoginThrottledException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.mine.gallery.security;
+
+import com.mine.gallery.exception.generic.InvalidSignatureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+
+import static com.mine.gallery.security.SecurityConstants.SECRET;
+
+/**
+ * Signs and verifies the urls of the stored images. A signed url carries the storage location of the image,
+ * an expiry time and an HMAC-SHA256 signature of both, so it can be served without a token or a database lookup.
+ * <p>
+ * Expiry times are rounded up to a fixed bucket, so the same image gets the same url for a while
+ * and the responses can be cached by the browser and shared proxies.
+ *
+ * @author TrusTio
+ */
+@Component
+public class ImageUrlSigner {
+    public static final String ORIGINAL = "original";
+    public static final String THUMBNAIL = "thumbnail";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+    private final String baseUrl;
+    private final long ttlSeconds;
+    private final long bucketSeconds;
+
+    public ImageUrlSigner(@Value("${gallery.media.signing-key:}") String signingKey,
+                          @Value("${gallery.media.base-url:http://localhost:8080}") String baseUrl,
+                          @Value("${gallery.media.url-ttl:1h}") Duration ttl,
+                          @Value("${gallery.media.url-bucket:15m}") Duration bucket) {
+        byte[] keyBytes = (StringUtils.hasText(signingKey) ? signingKey : "media:" + SECRET)
+                .getBytes(StandardCharsets.UTF_8);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        this.baseUrl = baseUrl;
+        this.ttlSeconds = ttl.getSeconds();
+        this.bucketSeconds = Math.max(1, bucket.getSeconds());
+    }
+
+    /**
+     * Builds a signed url for the image or its thumbnail.
+     *
+     * @param location String storage location of the image
+     * @param variant  String {@link #ORIGINAL} or {@link #THUMBNAIL}
+     * @return String signed url
+     */
+    public String sign(String location, String variant) {
+        long expires = currentExpiry();
+        String key = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(location.getBytes(StandardCharsets.UTF_8));
+
+        return baseUrl + "/api/v1/media/" + variant + "/" + key
+                + "?expires=" + expires
+                + "&signature=" + signature(variant, key, expires);
+    }
+
+    /**
+     * @return long expiry time of the urls signed now, in epoch seconds. It changes once per bucket
+     */
+    public long currentExpiry() {
+        long now = System.currentTimeMillis() / 1000;
+        return ((now + ttlSeconds) / bucketSeconds + 1) * bucketSeconds;
+    }
+
+    /**
+     * Checks the signature and the expiry of a signed url.
+     * <p>
+     * Throws {@link InvalidSignatureException} if the signature doesn't match or the url has expired.
+     *
+     * @param variant   String variant from the url
+     * @param key       String encoded location from the url
+     * @param expires   long expiry time from the url, in epoch seconds
+     * @param signature String signature from the url
+     * @return String the storage location of the image
+     */
+    public String verify(String variant, String key, long expires, String signature) {
+        byte[] expected = signature(variant, key, expires).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII))) {
+            throw new InvalidSignatureException("Invalid image url signature.");
+        }
+        if (expires <= System.currentTimeMillis() / 1000) {
+            throw new InvalidSignatureException("The image url has expired.");
+        }
+        return new String(Base64.getUrlDecoder().decode(key), StandardCharsets.UTF_8);
+    }
+
+    private String signature(String variant, String key, long expires) {
+        byte[] payload = (variant + "\n" + key + "\n" + expires).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.get().doFinal(payload));
+    }
+}
@@ -0,0 +1,111 @@
+package com.mine.gallery.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mine.gallery.exception.ApiError;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static com.mine.gallery.security.SecurityConstants.SIGN_UP_URL;
+
+/**
+ * Servlet filter that rate limits the requests before they reach the security filters.
+ * Login and sign up are limited per IP address. The rest of the api is limited per user,
+ * when the token of the request was already verified, and per IP address otherwise.
+ * <p>
+ * Every limited response carries the RateLimit-Limit, RateLimit-Remaining and RateLimit-Reset headers.
+ * Rejected requests get 429 with a Retry-After header.
+ *
+ * @author TrusTio
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String API_PREFIX = "/api/v1/";
+
+    /**
+     * Classes of endpoints with separate limits
+     */
+    public enum EndpointClass {
+        AUTH, UPLOAD, READ
+    }
+
+    private final Map<EndpointClass, RateLimiter> limiters;
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(Map<EndpointClass, RateLimiter> limiters,
+                           TokenAuthenticationCache tokenAuthenticationCache,
+                           ObjectMapper objectMapper) {
+        this.limiters = new EnumMap<>(limiters);
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws IOException, ServletException {
+        EndpointClass endpointClass = classify(request);
+        RateLimiter limiter = endpointClass == null ? null : limiters.get(endpointClass);
+        if (limiter == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = endpointClass == EndpointClass.AUTH ? "ip:" + request.getRemoteAddr() : clientKey(request);
+        RateLimiter.Decision decision = limiter.tryAcquire(key);
+
+        response.setHeader("RateLimit-Limit", String.valueOf(decision.getLimit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.getRemaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(decision.getResetSeconds()));
+
+        if (!decision.isAllowed()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getRetryAfterSeconds()));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    new ApiError(HttpStatus.TOO_MANY_REQUESTS, "Too many requests, slow down!"));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private EndpointClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        if (HttpMethod.POST.matches(method) && (path.equals("/login") || path.equals(SIGN_UP_URL))) {
+            return EndpointClass.AUTH;
+        }
+        if (!path.startsWith(API_PREFIX) || HttpMethod.OPTIONS.matches(method)) {
+            return null;
+        }
+        if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)) {
+            return EndpointClass.READ;
+        }
+        return EndpointClass.UPLOAD;
+    }
+
+    /**
+     * Uses the id of the user if the token is already in the {@link TokenAuthenticationCache},
+     * so it doesn't have to be verified here, and the IP address otherwise. The lookup isn't
+     * counted in the cache statistics, the {@link AuthorizationFilter} counts it once the
+     * request is authorized, reusing the digest of the token.
+     */
+    private String clientKey(HttpServletRequest request) {
+        String token = AuthorizationFilter.resolveToken(request);
+        IdUsernamePasswordAuthenticationToken authentication =
+                token == null ? null : tokenAuthenticationCache.peek(TokenDigest.of(request, token));
+        return authentication != null ? "user:" + authentication.getId() : "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,126 @@
+package com.mine.gallery.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket rate limiter, implemented as the generic cell rate algorithm (GCRA).
+ * The state of a bucket is a single theoretical arrival time, updated with compare-and-set.
+ * <p>
+ * Memory is bounded: once there are too many keys, the buckets that have refilled completely are dropped
+ * (they are equal to a new bucket anyway), and if that's not enough, new keys share a fixed set of buckets.
+ *
+ * @author TrusTio
+ */
+public class RateLimiter {
+    private static final int OVERFLOW_BUCKETS = 1024;
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int limit;
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong[] overflowBuckets = new AtomicLong[OVERFLOW_BUCKETS];
+    private final AtomicLong lastPurge = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param requestsPerSecond double rate at which the bucket refills
+     * @param burst             int size of the bucket, number of requests allowed at once
+     * @param maxKeys           int number of keys to track individually
+     */
+    public RateLimiter(double requestsPerSecond, int burst, int maxKeys) {
+        if (requestsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("The rate and the burst of a rate limit should be positive");
+        }
+        this.limit = burst;
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.toleranceNanos = emissionIntervalNanos * burst;
+        this.maxKeys = maxKeys;
+
+        long now = System.nanoTime();
+        for (int i = 0; i < OVERFLOW_BUCKETS; i++) {
+            overflowBuckets[i] = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of the key if there is one.
+     *
+     * @param key String key of the client
+     * @return {@link Decision} whether the request is allowed and the state of the bucket
+     */
+    public Decision tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    Decision tryAcquire(String key, long now) {
+        AtomicLong bucket = bucketOf(key, now);
+
+        while (true) {
+            long arrival = bucket.get();
+            long nextArrival = Math.max(arrival, now) + emissionIntervalNanos;
+
+            if (nextArrival - now > toleranceNanos) {
+                return new Decision(false, limit, 0,
+                        toSeconds(arrival - now), toSeconds(nextArrival - now - toleranceNanos));
+            }
+            if (bucket.compareAndSet(arrival, nextArrival)) {
+                int remaining = (int) ((toleranceNanos - (nextArrival - now)) / emissionIntervalNanos);
+                return new Decision(true, limit, remaining, toSeconds(nextArrival - now), 0);
+            }
+        }
+    }
+
+    /**
+     * @return int number of keys tracked individually
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucketOf(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        if (buckets.size() >= maxKeys) {
+            purgeIdle(now);
+            if (buckets.size() >= maxKeys) {
+                return overflowBuckets[(key.hashCode() & Integer.MAX_VALUE) % OVERFLOW_BUCKETS];
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    private void purgeIdle(long now) {
+        long last = lastPurge.get();
+        if (now - last < PURGE_INTERVAL_NANOS || !lastPurge.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    private static long toSeconds(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Result of {@link #tryAcquire(String)}, with the values of the RateLimit headers.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Decision {
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+        private final long resetSeconds;
+        private final long retryAfterSeconds;
+    }
+}
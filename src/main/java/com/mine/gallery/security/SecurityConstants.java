@@ -1,5 +1,10 @@
 package com.mine.gallery.security;
 
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+
 /**
  * Security constants class that contains some constants used through the security classes
  *
@@ -7,10 +12,12 @@ package com.mine.gallery.security;
  */
 class SecurityConstants {
     public static final String SECRET = "SECRET_KEY";
+    public static final Key SIGNING_KEY = new SecretKeySpec(SECRET.getBytes(), SignatureAlgorithm.HS512.getJcaName());
     public static final long EXPIRATION_TIME = 86_400_000; // 24h
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
     public static final String SIGN_UP_URL = "/api/v1/users/signup";
+    public static final String MEDIA_URL = "/api/v1/media/**";
 
     private SecurityConstants() {
     }
@@ -0,0 +1,149 @@
+package com.mine.gallery.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the already verified tokens, so the signature and claims of a token are
+ * checked once instead of on every request. Entries are keyed by the SHA-256 digest of the token,
+ * so the tokens themselves aren't kept in memory, and expire together with the token.
+ *
+ * @author TrusTio
+ */
+@Component
+public class TokenAuthenticationCache {
+    private final ConcurrentMap<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TokenAuthenticationCache(@Value("${gallery.security.token-cache-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the authentication of an already verified token.
+     *
+     * @param token String token
+     * @return {@link IdUsernamePasswordAuthenticationToken} or null if the token is not cached or has expired
+     */
+    public IdUsernamePasswordAuthenticationToken get(String token) {
+        return get(TokenDigest.of(token));
+    }
+
+    IdUsernamePasswordAuthenticationToken get(ByteBuffer key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.authentication;
+    }
+
+    /**
+     * Like {@link #get(String)}, without counting the lookup as a hit or a miss,
+     * for the filters that look at the token before it is authorized.
+     *
+     * @param key ByteBuffer digest of the token
+     * @return {@link IdUsernamePasswordAuthenticationToken} or null if the token is not cached or has expired
+     */
+    IdUsernamePasswordAuthenticationToken peek(ByteBuffer key) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.isExpired(System.currentTimeMillis()) ? null : entry.authentication;
+    }
+
+    /**
+     * Caches the authentication of a verified token until the token expires.
+     * Nothing is cached when the cache is full of tokens that haven't expired yet.
+     *
+     * @param token          String token
+     * @param authentication {@link IdUsernamePasswordAuthenticationToken} built from the token
+     * @param expiration     Date expiration of the token
+     */
+    public void put(String token, IdUsernamePasswordAuthenticationToken authentication, Date expiration) {
+        put(TokenDigest.of(token), authentication, expiration);
+    }
+
+    void put(ByteBuffer key, IdUsernamePasswordAuthenticationToken authentication, Date expiration) {
+        if (entries.size() >= maxSize) {
+            purgeExpired();
+            if (entries.size() >= maxSize) {
+                return;
+            }
+        }
+        entries.put(key, new Entry(authentication, expiration.getTime()));
+    }
+
+    /**
+     * Drops the cached authentication of the token.
+     *
+     * @param key ByteBuffer digest of the token
+     */
+    void invalidate(ByteBuffer key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Drops all the cached tokens.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Removes the expired tokens.
+     */
+    @Scheduled(fixedDelayString = "${gallery.security.token-cache-purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    /**
+     * @return int number of cached tokens
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return long number of lookups that found a cached token
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return long number of lookups that didn't find a cached token
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private static final class Entry {
+        private final IdUsernamePasswordAuthenticationToken authentication;
+        private final long expiresAt;
+
+        private Entry(IdUsernamePasswordAuthenticationToken authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
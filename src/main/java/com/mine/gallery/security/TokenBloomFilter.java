@@ -0,0 +1,58 @@
+package com.mine.gallery.security;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size Bloom filter over token digests. It answers "definitely not revoked" for almost every token
+ * without touching the exact set of revocations. The digests are already uniformly distributed,
+ * so the bit positions are derived from them directly by double hashing.
+ * <p>
+ * Bits can't be cleared, so the filter is rebuilt when the expired revocations are purged.
+ *
+ * @author TrusTio
+ */
+final class TokenBloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions int number of tokens the filter is sized for
+     * @param falsePositiveRate  double false positive rate at the expected number of tokens
+     */
+    TokenBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) Math.max(1, (bits + 63) >>> 6));
+        this.bitCount = (long) words.length() << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    void put(ByteBuffer digest) {
+        long h1 = digest.getLong(0);
+        long h2 = digest.getLong(8);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    boolean mightContain(ByteBuffer digest) {
+        long h1 = digest.getLong(0);
+        long h2 = digest.getLong(8);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
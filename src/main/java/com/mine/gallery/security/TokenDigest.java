@@ -0,0 +1,52 @@
+package com.mine.gallery.security;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 digest of a token, used as the key of the token cache and the revocation store,
+ * so the tokens themselves aren't kept in memory or in the database.
+ *
+ * @author TrusTio
+ */
+final class TokenDigest {
+    private static final String REQUEST_ATTRIBUTE = TokenDigest.class.getName();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private TokenDigest() {
+    }
+
+    /**
+     * @param token String token, with or without surrounding whitespace
+     * @return ByteBuffer wrapping the 32 bytes of the digest
+     */
+    static ByteBuffer of(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.trim().getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Digest of the token of the request, computed once per request and shared by the filters.
+     *
+     * @param request HttpServletRequest
+     * @param token   String token of the request, see {@link AuthorizationFilter#resolveToken}
+     * @return ByteBuffer wrapping the 32 bytes of the digest
+     */
+    static ByteBuffer of(HttpServletRequest request, String token) {
+        ByteBuffer digest = (ByteBuffer) request.getAttribute(REQUEST_ATTRIBUTE);
+        if (digest == null) {
+            digest = of(token.replace("Bearer", ""));
+            request.setAttribute(REQUEST_ATTRIBUTE, digest);
+        }
+        return digest;
+    }
+}
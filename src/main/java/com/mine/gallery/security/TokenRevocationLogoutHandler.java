@@ -0,0 +1,54 @@
+package com.mine.gallery.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static com.mine.gallery.security.SecurityConstants.SIGNING_KEY;
+
+/**
+ * Logout handler that revokes the token of the request, so it can't be used again
+ * even if it was copied before the cookie was deleted.
+ *
+ * @author TrusTio
+ */
+@Slf4j
+public class TokenRevocationLogoutHandler implements LogoutHandler {
+    private final TokenRevocationStore tokenRevocationStore;
+
+    public TokenRevocationLogoutHandler(TokenRevocationStore tokenRevocationStore) {
+        this.tokenRevocationStore = tokenRevocationStore;
+    }
+
+    /**
+     * Verifies the token before revoking it, so only valid tokens end up in the store.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
+        String token = AuthorizationFilter.resolveToken(request);
+        if (token == null) {
+            return;
+        }
+
+        String jwt = token.replace("Bearer", "");
+        try {
+            Claims claims = Jwts.parser()
+                    .setSigningKey(SIGNING_KEY)
+                    .parseClaimsJws(jwt)
+                    .getBody();
+
+            tokenRevocationStore.revoke(jwt, claims.getExpiration());
+            log.info("Token revoked!");
+        } catch (JwtException | IllegalArgumentException e) {
+            log.info("No valid token to revoke: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.mine.gallery.security;
+
+import com.mine.gallery.persistence.entity.RevokedToken;
+import com.mine.gallery.persistence.repository.RevokedTokenRepository;
+import com.mine.gallery.persistence.shard.ShardContext;
+import com.mine.gallery.persistence.shard.ShardTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Store of the tokens revoked before they expired, consulted on every authorized request.
+ * <p>
+ * A {@link TokenBloomFilter} rules out almost all tokens with a few bit probes, only its hits are checked against
+ * the exact set of revocations. The revocations are persisted on the first shard and synced periodically,
+ * so they survive restarts and reach every instance. Entries are dropped once the token has expired anyway.
+ *
+ * @author TrusTio
+ */
+@Component
+@Slf4j
+public class TokenRevocationStore {
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ShardTemplate shardTemplate;
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+    private final int expectedTokens;
+    private final double falsePositiveRate;
+    private final long syncOverlapSeconds;
+
+    private final ConcurrentMap<ByteBuffer, Long> revocations = new ConcurrentHashMap<>();
+    private volatile TokenBloomFilter filter;
+    private LocalDateTime lastSync = EPOCH;
+
+    public TokenRevocationStore(RevokedTokenRepository revokedTokenRepository,
+                                ShardTemplate shardTemplate,
+                                TokenAuthenticationCache tokenAuthenticationCache,
+                                @Value("${gallery.security.revocation.expected-tokens:100000}") int expectedTokens,
+                                @Value("${gallery.security.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${gallery.security.revocation.sync-overlap-seconds:60}") long syncOverlapSeconds) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.shardTemplate = shardTemplate;
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.syncOverlapSeconds = syncOverlapSeconds;
+        this.filter = new TokenBloomFilter(expectedTokens, falsePositiveRate);
+    }
+
+    /**
+     * Checks if the token was revoked.
+     *
+     * @param token String token
+     * @return true if the token was revoked and hasn't expired yet
+     */
+    public boolean isRevoked(String token) {
+        return isRevoked(TokenDigest.of(token));
+    }
+
+    boolean isRevoked(ByteBuffer key) {
+        if (!filter.mightContain(key)) {
+            return false;
+        }
+        Long expiresAt = revocations.get(key);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Revokes the token until it expires. Tokens that have already expired or been revoked are skipped.
+     *
+     * @param token      String token, its signature must have been verified already
+     * @param expiration Date expiration of the token
+     */
+    public void revoke(String token, Date expiration) {
+        ByteBuffer key = TokenDigest.of(token);
+        if (expiration.getTime() <= System.currentTimeMillis() || isRevoked(key)) {
+            return;
+        }
+
+        byte[] digest = key.array();
+        try {
+            shardTemplate.executeOn(0, () -> revokedTokenRepository.existsByDigest(digest) ? null
+                    : revokedTokenRepository.save(new RevokedToken()
+                    .setDigest(digest)
+                    .setRevokedAt(LocalDateTime.now())
+                    .setExpiresAt(toLocalDateTime(expiration.getTime()))));
+        } catch (DataIntegrityViolationException e) {
+            log.info("Token already revoked by another instance");
+        }
+        add(key, expiration.getTime());
+    }
+
+    /**
+     * Loads the revocations made since the last sync, including the ones made by other instances.
+     * The first run loads all of them. The window overlaps the previous one, so revocations committed
+     * late aren't missed, adding them again is a no-op.
+     */
+    @Scheduled(fixedDelayString = "${gallery.security.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastSync;
+
+        List<RevokedToken> revoked = ShardContext.callOn(0, () ->
+                revokedTokenRepository.findAllByRevokedAtAfterAndExpiresAtAfter(since, now));
+        for (RevokedToken token : revoked) {
+            ByteBuffer key = ByteBuffer.wrap(token.getDigest());
+            if (!revocations.containsKey(key)) {
+                add(key, token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+        lastSync = now.minusSeconds(syncOverlapSeconds);
+    }
+
+    /**
+     * Drops the revocations of the expired tokens, rebuilds the filter without them
+     * and deletes them from the database.
+     */
+    @Scheduled(fixedDelayString = "${gallery.security.revocation.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            revocations.values().removeIf(expiresAt -> expiresAt <= now);
+
+            TokenBloomFilter rebuilt = new TokenBloomFilter(
+                    Math.max(expectedTokens, revocations.size() * 2), falsePositiveRate);
+            revocations.keySet().forEach(rebuilt::put);
+            filter = rebuilt;
+        }
+
+        int deleted = shardTemplate.executeOn(0, () -> revokedTokenRepository.deleteExpired(toLocalDateTime(now)));
+        log.debug("Purged {} expired token revocations", deleted);
+    }
+
+    /**
+     * @return int number of revoked tokens that haven't expired yet
+     */
+    public int size() {
+        return revocations.size();
+    }
+
+    /**
+     * Adds to the exact set first, so a token is never in the filter without being in the set.
+     * Synchronized with the rebuild of the filter, so no revocation is lost while the filter is swapped.
+     */
+    private synchronized void add(ByteBuffer key, long expiresAt) {
+        revocations.put(key, expiresAt);
+        filter.put(key);
+        tokenAuthenticationCache.invalidate(key);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+}
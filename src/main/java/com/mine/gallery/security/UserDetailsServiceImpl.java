@@ -1,40 +1,77 @@
 package com.mine.gallery.security;
 
+import com.mine.gallery.configuration.CacheConfig;
 import com.mine.gallery.persistence.entity.User;
 import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardKey;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * Implementation of the {@link UserDetailsService} interface
+ * Implementation of the {@link UserDetailsService} and {@link UserDetailsPasswordService} interfaces
  *
  * @author TrusTio
  */
 @Component
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final Cache userDetailsCache;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository, CacheManager cacheManager) {
         this.userRepository = userRepository;
+        this.userDetailsCache = cacheManager.getCache(CacheConfig.USER_DETAILS);
     }
 
     /**
      * Finds the user based on the username.
      * Uses the user's roles to create a list of authorities.
+     * The details are cached, a copy is returned every time because the credentials
+     * of the returned object are erased after the authentication.
      *
      * @param username username used to find user
      * @return returns new {@link CurrentUser} with username, password and authorities
      * @throws {@link UsernameNotFoundException} if the username wan not found
      */
     @Override
-    public UserDetails loadUserByUsername(String username) {
+    public UserDetails loadUserByUsername(@ShardKey String username) {
+        CurrentUser user;
+        try {
+            user = userDetailsCache.get(username, () -> findUser(username));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        return new CurrentUser(
+                user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getAuthorities());
+    }
+
+    /**
+     * Evicts the cached details of the user, after the current transaction commits if there is one.
+     *
+     * @param username String username of the user
+     */
+    public void evict(String username) {
+        userDetailsCache.evict(username);
+    }
+
+    private CurrentUser findUser(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
 
@@ -48,4 +85,29 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 user.getPassword(),
                 authorities);
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores the password of the user rehashed with the current strength.
+     * Called after a successful login when the stored hash is weaker than the current strength.
+     *
+     * @param userDetails {@link UserDetails} of the user that logged in
+     * @param newPassword String the new password hash
+     * @return new {@link CurrentUser} with the new password hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(@ShardKey(property = "username") UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(userDetails.getUsername()));
+
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        evict(user.getUsername());
+
+        return new CurrentUser(
+                user.getId(),
+                user.getUsername(),
+                newPassword,
+                userDetails.getAuthorities());
+    }
+}
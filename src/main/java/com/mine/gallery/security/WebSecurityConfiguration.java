@@ -1,5 +1,6 @@
 package com.mine.gallery.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
@@ -10,13 +11,14 @@ import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import javax.servlet.http.HttpServletResponse;
 
+import static com.mine.gallery.security.SecurityConstants.MEDIA_URL;
 import static com.mine.gallery.security.SecurityConstants.SIGN_UP_URL;
 
 /**
@@ -44,11 +46,20 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     @Autowired
     private final UserDetailsServiceImpl userDetailsService;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
+    private final TokenAuthenticationCache tokenAuthenticationCache;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final MeterRegistry meterRegistry;
 
-    public WebSecurityConfiguration(BCryptPasswordEncoder bCryptPasswordEncoder, UserDetailsServiceImpl userDetailsService) {
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+    public WebSecurityConfiguration(PasswordEncoder passwordEncoder, UserDetailsServiceImpl userDetailsService,
+                                    TokenAuthenticationCache tokenAuthenticationCache,
+                                    TokenRevocationStore tokenRevocationStore,
+                                    MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
         this.userDetailsService = userDetailsService;
+        this.tokenAuthenticationCache = tokenAuthenticationCache;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -64,11 +75,14 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
         httpSecurity.cors().and().csrf().disable().authorizeRequests()
                 .antMatchers(AUTH_WHITELIST).permitAll()
                 .antMatchers(HttpMethod.POST, SIGN_UP_URL).permitAll()
+                .antMatchers("/actuator/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
                 .and().addFilter(new AuthenticationFilter(authenticationManager()))
-                .addFilter(new AuthorizationFilter(authenticationManager()))
+                .addFilter(new AuthorizationFilter(authenticationManager(), tokenAuthenticationCache,
+                        tokenRevocationStore, meterRegistry))
                 .logout()
                 .logoutUrl("/logout")
+                .addLogoutHandler(new TokenRevocationLogoutHandler(tokenRevocationStore))
                 .deleteCookies("token")
                 .logoutSuccessHandler(((request, response, authentication) ->
                         response.setStatus(HttpServletResponse.SC_OK)))
@@ -88,7 +102,8 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     public void configure(WebSecurity web) throws Exception {
         web.ignoring()
                 .antMatchers(AUTH_WHITELIST_SWAGGER)
-                .antMatchers(SIGN_UP_URL);
+                .antMatchers(SIGN_UP_URL)
+                .antMatchers(MEDIA_URL);
     }
 
     /**
@@ -101,7 +116,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     public void configure(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
         authenticationManagerBuilder
                 .userDetailsService(userDetailsService)
-                .passwordEncoder(bCryptPasswordEncoder);
+                .passwordEncoder(passwordEncoder);
     }
 
     @Bean
@@ -0,0 +1,183 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.exception.change.ChangesCompactedException;
+import com.mine.gallery.exception.user.UserNotFoundException;
+import com.mine.gallery.persistence.entity.ChangeLogEntry;
+import com.mine.gallery.persistence.entity.ChangeType;
+import com.mine.gallery.persistence.repository.ChangeLogRepository;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardKey;
+import com.mine.gallery.persistence.shard.ShardTemplate;
+import com.mine.gallery.service.dto.ChangeDTO;
+import com.mine.gallery.service.dto.ChangesDTO;
+import com.mine.gallery.service.mapper.ChangeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Change log of the galleries and images of every user, so the clients keeping a copy of them
+ * can sync only what changed since their last sync instead of listing everything again.
+ * <p>
+ * Every change gets the next number of the sequence of its user, in the transaction of the change.
+ * Taking the number locks the row of the user, so the changes of a user commit in sequence order
+ * and a client that read up to a number never misses an earlier change committed later.
+ * <p>
+ * Changes older than the retention are compacted. A client asking for changes after a number
+ * that was compacted has to list everything again, see {@link ChangesCompactedException}.
+ *
+ * @author TrusTio
+ */
+@Service
+@Slf4j
+public class ChangeFeedService {
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ShardTemplate shardTemplate;
+
+    @Value("${gallery.changes.max-page-size:1000}")
+    private int maxPageSize;
+    @Value("${gallery.changes.retention:30d}")
+    private Duration retention;
+    @Value("${gallery.changes.compaction-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * @param type      ChangeType GALLERY_* type of the change
+     * @param galleryId Long id of the gallery
+     * @param name      String new name of the gallery, null if it was deleted
+     * @return ChangeLogEntry to be recorded
+     */
+    public static ChangeLogEntry galleryChange(ChangeType type, Long galleryId, String name) {
+        return new ChangeLogEntry().setType(type).setGalleryId(galleryId).setName(name);
+    }
+
+    /**
+     * @param type      ChangeType IMAGE_* type of the change
+     * @param galleryId Long id of the gallery the image is in after the change
+     * @param imageId   Long id of the image
+     * @param name      String new name of the image, null if it wasn't renamed
+     * @return ChangeLogEntry to be recorded
+     */
+    public static ChangeLogEntry imageChange(ChangeType type, Long galleryId, Long imageId, String name) {
+        return new ChangeLogEntry().setType(type).setGalleryId(galleryId).setImageId(imageId).setName(name);
+    }
+
+    /**
+     * Records a change of the user in the current transaction.
+     *
+     * @param userId Long id of the user
+     * @param change ChangeLogEntry change to be recorded
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Long userId, ChangeLogEntry change) {
+        record(userId, Collections.singletonList(change));
+    }
+
+    /**
+     * Records the changes of the user in the current transaction, in the order of the list.
+     *
+     * @param userId  Long id of the user
+     * @param changes List<ChangeLogEntry> changes to be recorded
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Long userId, List<ChangeLogEntry> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (userRepository.reserveChangeSeqs(userId, changes.size()) == 0) {
+            throw new UserNotFoundException(userId);
+        }
+
+        long seq = userRepository.findChangeSeqById(userId) - changes.size();
+        LocalDateTime now = LocalDateTime.now();
+        for (ChangeLogEntry change : changes) {
+            change.setUserId(userId).setSeq(++seq).setCreatedAt(now);
+        }
+        changeLogRepository.saveAll(changes);
+    }
+
+    /**
+     * Fetches the changes of the user after the given sequence number, oldest first.
+     * Without a sequence number no changes are returned, only the current number: a new client
+     * takes it first, lists the galleries and images, then syncs from it.
+     * <p>
+     * Throws {@link ChangesCompactedException} if some of the changes after the number were compacted.
+     *
+     * @param userId Long id of the user
+     * @param since  Long sequence number of the last change the client has, null for the current one
+     * @param limit  int maximum number of changes, capped at gallery.changes.max-page-size
+     * @return {@link ChangesDTO}
+     */
+    @Transactional(readOnly = true)
+    public ChangesDTO getChanges(@ShardKey Long userId, Long since, int limit) {
+        UserRepository.ChangeFeedPosition position = userRepository.findChangeFeedPositionById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+        if (since == null) {
+            return new ChangesDTO(Collections.emptyList(), position.getChangeSeq(), false);
+        }
+        if (since < position.getCompactedSeq()) {
+            throw new ChangesCompactedException(since);
+        }
+
+        List<ChangeDTO> changes = changeLogRepository.findAllByUserIdAndSeqGreaterThanOrderBySeq(userId, since,
+                PageRequest.of(0, Math.max(1, Math.min(limit, maxPageSize))))
+                .stream().map(ChangeMapper::toChangeDTO)
+                .collect(Collectors.toList());
+
+        long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new ChangesDTO(changes, next, next < position.getChangeSeq());
+    }
+
+    /**
+     * Removes the changes older than the retention on every shard. Every range of users
+     * is compacted in its own short transaction to avoid long locks.
+     *
+     * @return int number of changes removed
+     */
+    @Scheduled(cron = "${gallery.changes.compaction-cron:0 30 4 * * *}")
+    public int compactAll() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int deleted = 0;
+        for (int shard = 0; shard < shardTemplate.getShardCount(); shard++) {
+            deleted += compactShard(shard, cutoff);
+        }
+        log.info("Compacted {} changes older than {}", deleted, cutoff);
+        return deleted;
+    }
+
+    private int compactShard(int shard, LocalDateTime cutoff) {
+        Long minId = shardTemplate.executeOn(shard, userRepository::findMinId);
+        Long maxId = shardTemplate.executeOn(shard, userRepository::findMaxId);
+        if (minId == null) {
+            return 0;
+        }
+
+        // ids on a shard are spaced by the shard count
+        long step = (long) batchSize * shardTemplate.getShardCount();
+        int deleted = 0;
+        for (long from = minId; from <= maxId; from += step) {
+            long fromId = from;
+            long toId = from + step - 1;
+            deleted += shardTemplate.executeOn(shard, () -> {
+                userRepository.compactChangeSeqs(fromId, toId, cutoff);
+                return changeLogRepository.deleteCompacted(fromId, toId);
+            });
+        }
+        return deleted;
+    }
+}
@@ -3,28 +3,40 @@ package com.mine.gallery.service;
 import com.mine.gallery.exception.gallery.GalleryNotFoundException;
 import com.mine.gallery.exception.gallery.GalleryValidationException;
 import com.mine.gallery.exception.user.UserNotFoundException;
+import com.mine.gallery.persistence.entity.ChangeType;
 import com.mine.gallery.persistence.entity.Gallery;
+import com.mine.gallery.persistence.entity.Image;
 import com.mine.gallery.persistence.repository.GalleryRepository;
 import com.mine.gallery.persistence.repository.ImageRepository;
 import com.mine.gallery.persistence.repository.ImageStorageRepository;
 import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardKey;
+import com.mine.gallery.security.ImageUrlSigner;
 import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.service.dto.ListingDTO;
 import com.mine.gallery.service.dto.UserGalleriesDTO;
 import com.mine.gallery.service.mapper.GalleryMapper;
 import com.mine.gallery.util.ExceptionStringUtil;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.Errors;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.mine.gallery.service.ChangeFeedService.galleryChange;
+
 
 /**
  * Service class for Gallery related methods.
@@ -35,6 +47,7 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
+@Slf4j
 public class GalleryService {
     @Autowired
     private GalleryRepository galleryRepository;
@@ -44,9 +57,17 @@ public class GalleryService {
     private ImageStorageRepository imageStorageRepository;
     @Autowired
     private ImageRepository imageRepository;
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    @Autowired
+    private ImageUrlSigner imageUrlSigner;
+    @Autowired
+    private ListingVersions listingVersions;
+    @Autowired
+    private ChangeFeedService changeFeedService;
 
     /**
-     * Checks if the gallery name is valid. Then creates a folder for it and a new {@link Gallery} object
+     * Checks if the gallery name is valid. Then creates a new {@link Gallery} object
      * to assign the values of the DTO to it, then adds it to the database.
      * using {@link GalleryRepository}
      *
@@ -54,7 +75,7 @@ public class GalleryService {
      * @return The {@link GalleryDTO} object saved as {@link Gallery} in the database as Gallery
      */
     @Transactional
-    public UserGalleriesDTO create(GalleryDTO galleryDTO, Errors errors) {
+    public UserGalleriesDTO create(@ShardKey(property = "userId") GalleryDTO galleryDTO, Errors errors) {
         if (galleryRepository.findByNameAndUserId(galleryDTO.getName(), galleryDTO.getUserId()).isPresent()) {
             throw new GalleryValidationException("Duplicate gallery name.");
         }
@@ -66,41 +87,65 @@ public class GalleryService {
 
         Gallery gallery = new Gallery()
                 .setName(galleryDTO.getName())
+                .setLastUpdated(LocalDateTime.now())
                 .setUser(userRepository.findById(galleryDTO.getUserId())
                         .orElseThrow(() -> new UserNotFoundException(galleryDTO.getUserId())));
 
         gallery = galleryRepository.save(gallery);
+        listingVersions.changed(galleryDTO.getUserId());
+        changeFeedService.record(galleryDTO.getUserId(),
+                galleryChange(ChangeType.GALLERY_CREATED, gallery.getId(), gallery.getName()));
 
-        imageStorageRepository.saveGallery(gallery.getUser().getId(), gallery.getId());
-
-        return GalleryMapper.toUserGalleriesDTO(gallery);
+        return GalleryMapper.toUserGalleriesDTO(gallery, imageUrlSigner);
     }
 
     /**
      * Deletes a gallery and it's contents.
+     * <p>
+     * Throws {@link org.springframework.core.task.TaskRejectedException} if the file deletes can't keep up.
      *
      * @param userId    Long id of the user used to find the gallery
      * @param galleryId Long id of the gallery to be deleted
      */
-    public void delete(Long userId, Long galleryId) {
+    @Transactional
+    public void delete(@ShardKey Long userId, Long galleryId) {
+        imageStorageRepository.checkDeleteCapacity();
         Gallery gallery = galleryRepository.findByIdAndUserId(galleryId, userId)
                 .orElseThrow(() -> new GalleryNotFoundException(galleryId));
 
-        imageStorageRepository.deleteGallery(userId, galleryId);
+        List<String> locations = gallery.getImages().stream()
+                .map(Image::getLocation)
+                .collect(Collectors.toList());
 
+        galleryRepository.clearCoverImage(galleryId);
         galleryRepository.delete(gallery);
+        storageQuotaService.release(userId, gallery.getTotalBytes(), gallery.getImageCount());
+        listingVersions.changed(userId);
+        // the images of the gallery go with it, they get no changes of their own
+        changeFeedService.record(userId, galleryChange(ChangeType.GALLERY_DELETED, galleryId, null));
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    imageStorageRepository.deleteImages(locations);
+                } catch (RuntimeException e) {
+                    log.error("Failed to delete the files of gallery {}: {}", galleryId, e.getMessage());
+                }
+            }
+        });
     }
 
     /**
      * Renames a gallery.
-     * Checks if the given gallery exists, if it does, attempts to rename the gallery on the local storage.
-     * Then updates the gallery name in the database, after that changes the location of the
-     * images in the database to their new location.
+     * Checks if the given gallery exists, if it does, updates the gallery name in the database.
+     * The files of the images are not affected, as their location doesn't depend on the gallery.
      *
      * @param galleryId  Long id of the gallery of the gallery
      * @param galleryDTO {@link GalleryDTO} object used to rename the gallery
      */
-    public void rename(Long galleryId, GalleryDTO galleryDTO, Errors errors) {
+    @Transactional
+    public void rename(Long galleryId, @ShardKey(property = "userId") GalleryDTO galleryDTO, Errors errors) {
         if (errors.hasErrors()) {
             String exceptionMessage = ExceptionStringUtil.exceptionMessageBuilder(errors);
             throw new GalleryValidationException(exceptionMessage);
@@ -112,20 +157,29 @@ public class GalleryService {
         gallery.setName(galleryDTO.getName());
 
         galleryRepository.save(gallery);
+        galleryRepository.updateStatistics(galleryId, 0, 0, LocalDateTime.now());
+        listingVersions.changed(galleryDTO.getUserId());
+        changeFeedService.record(galleryDTO.getUserId(),
+                galleryChange(ChangeType.GALLERY_RENAMED, galleryId, gallery.getName()));
     }
 
     /**
-     * Fetches a list of the gallery names a specific user has, using his id
+     * Fetches a list of the gallery names a specific user has, using their id.
+     * The pages are cached until the galleries or images of the user change, see {@link ListingVersions}.
      *
      * @param pageNo   Integer Number of the page to be fetched
      * @param pageSize Integer Size of the pages
      * @param sortBy   String sort by field
      * @param userId   Long id of the user to be fetched
-     * @return {@link List <UserGalleriesDTO>} of the gallery names
+     * @param version  long version of the listings of the user, see {@link ListingVersions#current}
+     * @return {@link ListingDTO} of the gallery names
      */
-    public List<UserGalleriesDTO> getUserGalleries(Integer pageNo, Integer pageSize, String sortBy, Long userId) {
-        return galleryRepository.findAllByUserId(userId, PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
-                .stream().map(GalleryMapper::toUserGalleriesDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public ListingDTO<UserGalleriesDTO> getUserGalleries(Integer pageNo, Integer pageSize, String sortBy,
+                                                          @ShardKey Long userId, long version) {
+        return listingVersions.cached(userId, version, Arrays.asList("getUserGalleries", pageNo, pageSize, sortBy), () ->
+                galleryRepository.findAllByUserId(userId, PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
+                        .stream().map(gallery -> GalleryMapper.toUserGalleriesDTO(gallery, imageUrlSigner))
+                        .collect(Collectors.toList()));
     }
 }
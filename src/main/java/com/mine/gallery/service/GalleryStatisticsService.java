@@ -0,0 +1,68 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.persistence.repository.GalleryRepository;
+import com.mine.gallery.persistence.shard.ShardTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Repairs the denormalized statistics of the galleries (image count, total bytes and cover image)
+ * in case they drifted from the images table, e.g. after manual changes to the database.
+ *
+ * @author TrusTio
+ */
+@Service
+@Slf4j
+public class GalleryStatisticsService {
+    @Autowired
+    private GalleryRepository galleryRepository;
+    @Autowired
+    private ShardTemplate shardTemplate;
+    @Autowired
+    private ListingVersions listingVersions;
+
+    @Value("${gallery.statistics.repair-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Recomputes the statistics of all galleries on every shard. Every range of
+     * galleries is updated in its own short transaction to avoid long locks.
+     *
+     * @return int number of galleries updated
+     */
+    @Scheduled(cron = "${gallery.statistics.repair-cron:0 0 4 * * *}")
+    public int repairAll() {
+        int updated = 0;
+        for (int shard = 0; shard < shardTemplate.getShardCount(); shard++) {
+            updated += repairShard(shard);
+        }
+        log.info("Recomputed the statistics of {} galleries", updated);
+        return updated;
+    }
+
+    private int repairShard(int shard) {
+        Long minId = shardTemplate.executeOn(shard, galleryRepository::findMinId);
+        Long maxId = shardTemplate.executeOn(shard, galleryRepository::findMaxId);
+        if (minId == null) {
+            return 0;
+        }
+
+        // ids on a shard are spaced by the shard count
+        long step = (long) batchSize * shardTemplate.getShardCount();
+        int updated = 0;
+        for (long from = minId; from <= maxId; from += step) {
+            long fromId = from;
+            long toId = from + step - 1;
+            updated += shardTemplate.executeOn(shard, () -> {
+                int recomputed = galleryRepository.recomputeStatistics(fromId, toId);
+                // the statistics are part of the cached gallery listings
+                listingVersions.changedGalleries(fromId, toId);
+                return recomputed;
+            });
+        }
+        return updated;
+    }
+}
@@ -3,30 +3,50 @@ package com.mine.gallery.service;
 import com.mine.gallery.exception.gallery.GalleryNotFoundException;
 import com.mine.gallery.exception.image.ImageNotFoundException;
 import com.mine.gallery.exception.image.ImageValidationException;
+import com.mine.gallery.persistence.entity.ChangeType;
 import com.mine.gallery.persistence.entity.Gallery;
 import com.mine.gallery.persistence.entity.Image;
 import com.mine.gallery.persistence.repository.GalleryRepository;
 import com.mine.gallery.persistence.repository.ImageRepository;
 import com.mine.gallery.persistence.repository.ImageStorageRepository;
 import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardKey;
+import com.mine.gallery.security.ImageUrlSigner;
 import com.mine.gallery.service.dto.ImageDTO;
+import com.mine.gallery.service.dto.ListingDTO;
 import com.mine.gallery.service.mapper.ImageMapper;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
+import static com.mine.gallery.service.ChangeFeedService.imageChange;
+
 /**
  * Service class for Image related methods.
  *
@@ -43,36 +63,53 @@ public class ImageService {
     private GalleryRepository galleryRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    @Autowired
+    private ImageUrlSigner imageUrlSigner;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ListingVersions listingVersions;
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     /**
      * Validates the {@link MultipartFile MultipartFile} then saves the file
      * to the local storage and saves information about it in the database.
+     * <p>
+     * The file and its thumbnail are written before the transaction of the insert is opened, so a slow disk
+     * never holds one of the few connections of the image pool. Only the insert and the quota reservation
+     * run in that transaction, which removes the file again if it rolls back.
+     * <p>
+     * Each phase is timed as the gallery.image.save metric, tagged with the phase:
+     * validate, write, thumbnail (see {@link ImageStorageRepository#saveImage}) and insert.
      *
      * @param image     MultipartFile file to be saved
      * @param galleryId Long id of the gallery
      * @param userId    Long user id of the user
      * @return
      */
-    @Transactional
-    public Long save(MultipartFile image, Long galleryId, Long userId) {
-        Gallery gallery = galleryRepository.findByIdAndUserId(galleryId, userId)
-                .orElseThrow(() -> new GalleryNotFoundException(galleryId));
+    public Long save(MultipartFile image, Long galleryId, @ShardKey Long userId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
 
-        if (getImage(userId, galleryId, image.getOriginalFilename()).isPresent()) {
-            throw new ImageValidationException("Image with that name already exists.");
-        }
-
-        String imageName = String.format("%s-%s", new Date().getTime(), image.getOriginalFilename());
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder
-                .append("/")
-                .append(userId).append("/")
-                .append(galleryId).append("/")
-                .append(imageName);
+        Timer.Sample validation = Timer.start(meterRegistry);
+        String imageName = image.getOriginalFilename();
+        transaction.executeWithoutResult(status -> {
+            if (getImage(userId, galleryId, imageName).isPresent()) {
+                throw new ImageValidationException("Image with that name already exists.");
+            }
+        });
 
-        String imageLocation = stringBuilder.toString();
+        // the file is keyed by a random id, so renaming or moving the image never touches the disk
+        String imageLocation = "/" + userId + "/" + UUID.randomUUID()
+                + "." + FilenameUtils.getExtension(imageName);
 
         isValidImage(image);
+        storageQuotaService.checkAvailable(userId, image.getSize());
+        validation.stop(savePhase("validate"));
 
         try {
             imageStorageRepository.saveImage(image.getBytes(), imageLocation);
@@ -80,11 +117,26 @@ public class ImageService {
             log.error(e.getMessage());
         }
 
-        return imageRepository.save(new Image()
-                .setName(imageName)
-                .setGallery(gallery)
-                .setLocation(imageLocation))
-                .getId();
+        return savePhase("insert").record(() -> transaction.execute(status -> {
+            deleteOnRollback(imageLocation);
+            Gallery gallery = galleryRepository.findByIdAndUserId(galleryId, userId)
+                    .orElseThrow(() -> new GalleryNotFoundException(galleryId));
+
+            Image savedImage = imageRepository.saveAndFlush(new Image()
+                    .setName(imageName)
+                    .setGallery(gallery)
+                    .setLocation(imageLocation)
+                    .setFileSize(image.getSize()));
+
+            galleryRepository.updateStatistics(galleryId, 1, image.getSize(), LocalDateTime.now());
+            galleryRepository.setCoverImageIfMissing(galleryId, savedImage);
+            storageQuotaService.reserve(userId, image.getSize());
+            listingVersions.changed(userId);
+            changeFeedService.record(userId,
+                    imageChange(ChangeType.IMAGE_CREATED, galleryId, savedImage.getId(), imageName));
+
+            return savedImage.getId();
+        }));
     }
 
     /**
@@ -97,7 +149,9 @@ public class ImageService {
      * @param imageName String name of the image
      * @return FileSystemResource
      */
-    public FileSystemResource findImage(Long userId, Long galleryId, String imageName) {
+    @Transactional(readOnly = true)
+    @Timed(value = "gallery.image.find", extraTags = {"variant", "original"})
+    public FileSystemResource findImage(@ShardKey Long userId, Long galleryId, String imageName) {
         Image image = getImage(userId, galleryId, imageName)
                 .orElseThrow(() -> new ImageNotFoundException(imageName));
 
@@ -114,29 +168,65 @@ public class ImageService {
      * @param imageName String name of the image
      * @return FileSystemResource
      */
-    public FileSystemResource findImageThumbnail(Long userId, Long galleryId, String imageName) {
+    @Transactional(readOnly = true)
+    @Timed(value = "gallery.image.find", extraTags = {"variant", "thumbnail"})
+    public FileSystemResource findImageThumbnail(@ShardKey Long userId, Long galleryId, String imageName) {
         Image image = getImage(userId, galleryId, imageName)
                 .orElseThrow(() -> new ImageNotFoundException(imageName));
 
-        if (image != null) {
-            return imageStorageRepository.findImageThumbnail(userId, galleryId, imageName);
+        return imageStorageRepository.findImageThumbnail(image.getLocation());
+    }
+
+    /**
+     * Fetches an image or its thumbnail using a signed url.
+     * Only the signature and the expiry of the url are checked, without touching the database.
+     * <p>
+     * Throws {@link com.mine.gallery.exception.generic.InvalidSignatureException} if the url is not valid
+     * and {@link ImageNotFoundException} if the file doesn't exist anymore.
+     *
+     * @param variant   String {@link ImageUrlSigner#ORIGINAL} or {@link ImageUrlSigner#THUMBNAIL}
+     * @param key       String encoded storage location of the image
+     * @param expires   long expiry time of the url, in epoch seconds
+     * @param signature String signature of the url
+     * @return FileSystemResource
+     */
+    @Timed("gallery.image.find.signed")
+    public FileSystemResource findSignedImage(String variant, String key, long expires, String signature) {
+        String location = imageUrlSigner.verify(variant, key, expires, signature);
+
+        FileSystemResource resource = ImageUrlSigner.THUMBNAIL.equals(variant)
+                ? imageStorageRepository.findImageThumbnail(location)
+                : imageStorageRepository.findInFileSystem(location);
+        if (!resource.exists()) {
+            throw new ImageNotFoundException(resource.getFilename());
         }
-        throw new ImageNotFoundException(imageName);
+        return resource;
     }
 
     /**
-     * Deletes an image.
+     * Deletes an image. Its file is removed once the transaction is committed.
      *
      * @param userId    Long id of the user
      * @param galleryId Long id of the gallery
      * @param imageName String name of the image
      */
-    public void deleteImage(Long userId, Long galleryId, String imageName) {
+    @Transactional
+    public void deleteImage(@ShardKey Long userId, Long galleryId, String imageName) {
         Image image = getImage(userId, galleryId, imageName)
                 .orElseThrow(() -> new ImageNotFoundException(imageName));
 
-        imageStorageRepository.deleteImage(userId, galleryId, imageName);
+        // the cover moves to the newest remaining image when the deleted one was the cover
+        galleryRepository.replaceCoverImage(galleryId, image,
+                imageRepository.findFirstByGalleryIdAndIdNotOrderByIdDesc(galleryId, image.getId())
+                        .orElse(null));
+        galleryRepository.updateStatistics(galleryId, -1, -image.getFileSize(), LocalDateTime.now());
+
         imageRepository.delete(image);
+        storageQuotaService.release(userId, image.getFileSize(), 1);
+        listingVersions.changed(userId);
+        changeFeedService.record(userId, imageChange(ChangeType.IMAGE_DELETED, galleryId, image.getId(), null));
+
+        deleteAfterCommit(Collections.singletonList(image.getLocation()));
     }
 
     /**
@@ -147,63 +237,172 @@ public class ImageService {
      * @param imageName    String name of the image
      * @param newImageName String new name for the image
      */
-    public void renameImage(Long userId, Long galleryId, String imageName, String newImageName) {
+    @Transactional
+    public void renameImage(@ShardKey Long userId, Long galleryId, String imageName, String newImageName) {
         if(StringUtils.isBlank(newImageName.trim())) throw new ImageValidationException("Image name should be valid");
         Image image = getImage(userId, galleryId, imageName)
                 .orElseThrow(() -> new ImageNotFoundException(imageName));
 
-        newImageName = imageStorageRepository.renameImage(userId, galleryId, imageName, newImageName);
+        String extension = FilenameUtils.getExtension(imageName);
+        newImageName = extension.isEmpty() ? newImageName : newImageName + "." + extension;
+        if (StringUtils.containsAny(newImageName, '/', '\\')) {
+            throw new ImageValidationException("Invalid image name.");
+        }
+        if (getImage(userId, galleryId, newImageName).isPresent()) {
+            throw new ImageValidationException("Image with that name already exists.");
+        }
+
         image.setName(newImageName);
 
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("/")
-                .append(userId).append("/")
-                .append(galleryId).append("/")
-                .append(newImageName);
+        imageRepository.save(image);
+        galleryRepository.updateStatistics(galleryId, 0, 0, LocalDateTime.now());
+        listingVersions.changed(userId);
+        changeFeedService.record(userId,
+                imageChange(ChangeType.IMAGE_RENAMED, galleryId, image.getId(), newImageName));
+    }
 
-        image.setLocation(stringBuilder.toString());
+    /**
+     * Deletes the given images of the user with set based statements, then removes
+     * their files in parallel once the transaction is committed.
+     * <p>
+     * Throws {@link ImageNotFoundException} if any of the images doesn't belong to the user, and
+     * {@link org.springframework.core.task.TaskRejectedException} if the file deletes can't keep up.
+     *
+     * @param userId   Long id of the user
+     * @param imageIds List<Long> ids of the images
+     * @return int number of deleted images
+     */
+    @Transactional
+    public int deleteImages(@ShardKey Long userId, List<Long> imageIds) {
+        imageStorageRepository.checkDeleteCapacity();
+        List<Image> images = findOwnedImages(userId, imageIds);
+        Set<Long> ids = images.stream().map(Image::getId).collect(Collectors.toSet());
+        Map<Long, List<Image>> imagesByGallery = images.stream()
+                .collect(Collectors.groupingBy(image -> image.getGallery().getId()));
 
-        imageRepository.save(image);
+        galleryRepository.clearCoverImages(ids);
+        imageRepository.bulkDelete(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        imagesByGallery.forEach((galleryId, galleryImages) ->
+                galleryRepository.updateStatistics(galleryId, -galleryImages.size(), -totalBytes(galleryImages), now));
+        galleryRepository.assignMissingCoverImages(imagesByGallery.keySet());
+        storageQuotaService.release(userId, totalBytes(images), images.size());
+        listingVersions.changed(userId);
+        changeFeedService.record(userId, images.stream()
+                .map(image -> imageChange(ChangeType.IMAGE_DELETED, image.getGallery().getId(), image.getId(), null))
+                .collect(Collectors.toList()));
+
+        deleteAfterCommit(images.stream().map(Image::getLocation).collect(Collectors.toList()));
+
+        return images.size();
     }
 
     /**
-     * Fetches a list of the images(id, name and url) the user has in specific gallery
+     * Moves the given images of the user to another of their galleries with set based statements.
+     * The files stay where they are, as their location doesn't depend on the gallery.
+     * <p>
+     * Throws {@link ImageNotFoundException} if any of the images doesn't belong to the user
+     * and {@link ImageValidationException} if an image with the same name is already in the gallery.
+     *
+     * @param userId    Long id of the user
+     * @param imageIds  List<Long> ids of the images
+     * @param galleryId Long id of the gallery to move the images to
+     * @return int number of moved images
+     */
+    @Transactional
+    public int moveImages(@ShardKey Long userId, List<Long> imageIds, Long galleryId) {
+        if (galleryId == null) {
+            throw new ImageValidationException("The gallery to move the images to is required.");
+        }
+        Gallery gallery = galleryRepository.findByIdAndUserId(galleryId, userId)
+                .orElseThrow(() -> new GalleryNotFoundException(galleryId));
+
+        List<Image> images = findOwnedImages(userId, imageIds).stream()
+                .filter(image -> !image.getGallery().getId().equals(galleryId))
+                .collect(Collectors.toList());
+        if (images.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> names = images.stream().map(Image::getName).collect(Collectors.toSet());
+        if (names.size() != images.size() || imageRepository.existsByGalleryIdAndNameIn(galleryId, names)) {
+            throw new ImageValidationException("Image with that name already exists.");
+        }
+
+        Set<Long> ids = images.stream().map(Image::getId).collect(Collectors.toSet());
+        Map<Long, List<Image>> imagesByGallery = images.stream()
+                .collect(Collectors.groupingBy(image -> image.getGallery().getId()));
+
+        galleryRepository.clearCoverImages(ids);
+        imageRepository.bulkMove(ids, gallery);
+
+        LocalDateTime now = LocalDateTime.now();
+        imagesByGallery.forEach((sourceId, galleryImages) ->
+                galleryRepository.updateStatistics(sourceId, -galleryImages.size(), -totalBytes(galleryImages), now));
+        galleryRepository.updateStatistics(galleryId, images.size(), totalBytes(images), now);
+
+        Set<Long> affectedGalleries = new HashSet<>(imagesByGallery.keySet());
+        affectedGalleries.add(galleryId);
+        galleryRepository.assignMissingCoverImages(affectedGalleries);
+        listingVersions.changed(userId);
+        changeFeedService.record(userId, images.stream()
+                .map(image -> imageChange(ChangeType.IMAGE_MOVED, galleryId, image.getId(), null))
+                .collect(Collectors.toList()));
+
+        return images.size();
+    }
+
+    /**
+     * Fetches a list of the images(id, name and url) the user has in specific gallery.
+     * The pages are cached until the galleries or images of the user change, see {@link ListingVersions}.
      *
      * @param pageNo    Integer Number of the page to be fetched
      * @param pageSize  Integer Size of the pages
      * @param sortBy    String sort by field
      * @param userId    Long id of the user to be fetched
      * @param galleryId Long id of the gallery
-     * @return {@link List<ImageDTO>}
+     * @param version   long version of the listings of the user, see {@link ListingVersions#current}
+     * @return {@link ListingDTO} of the images
      */
-    public List<ImageDTO> getUserGalleryImages(Integer pageNo, Integer pageSize, String sortBy,
-                                               Long userId, Long galleryId) {
-        Gallery gallery = galleryRepository.findByIdAndUserId(galleryId, userId)
-                .orElseThrow(() -> new GalleryNotFoundException(galleryId));
+    @Transactional(readOnly = true)
+    public ListingDTO<ImageDTO> getUserGalleryImages(Integer pageNo, Integer pageSize, String sortBy,
+                                                     @ShardKey Long userId, Long galleryId, long version) {
+        return listingVersions.cached(userId, version,
+                Arrays.asList("getUserGalleryImages", galleryId, pageNo, pageSize, sortBy), () -> {
+                    Gallery gallery = galleryRepository.findByIdAndUserId(galleryId, userId)
+                            .orElseThrow(() -> new GalleryNotFoundException(galleryId));
 
-        return imageRepository.findAllByGalleryId(gallery.getId(), PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
-                .stream().map(ImageMapper::toImageDTO)
-                .collect(Collectors.toList());
+                    return imageRepository.findAllByGalleryId(gallery.getId(),
+                            PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
+                            .stream().map(image -> ImageMapper.toImageDTO(image, imageUrlSigner))
+                            .collect(Collectors.toList());
+                });
     }
 
     /**
      * Fetches a list of the images(id, name and url) the user has in all galleries.
+     * The pages are cached until the galleries or images of the user change, see {@link ListingVersions}.
      *
      * @param pageNo   Integer Number of the page to be fetched
      * @param pageSize Integer Size of the pages
      * @param sortBy   String sort by field
      * @param userId   Long id of the user to be fetched
-     * @return {@link List<ImageDTO>}
+     * @param version  long version of the listings of the user, see {@link ListingVersions#current}
+     * @return {@link ListingDTO} of the images
      */
-    public List<ImageDTO> getUserImages(Integer pageNo, Integer pageSize, String sortBy,
-                                        Long userId) {
-        List<Gallery> userGalleries = galleryRepository.findAllByUserId(userId);
-        Long[] galleryIds = userGalleries
-                .stream().map(Gallery::getId).toArray(Long[]::new);
-
-        return imageRepository.findAllByGalleryIdIn(galleryIds, PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
-                .stream().map(ImageMapper::toImageDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public ListingDTO<ImageDTO> getUserImages(Integer pageNo, Integer pageSize, String sortBy,
+                                              @ShardKey Long userId, long version) {
+        return listingVersions.cached(userId, version, Arrays.asList("getUserImages", pageNo, pageSize, sortBy), () -> {
+            List<Gallery> userGalleries = galleryRepository.findAllByUserId(userId);
+            Long[] galleryIds = userGalleries
+                    .stream().map(Gallery::getId).toArray(Long[]::new);
+
+            return imageRepository.findAllByGalleryIdIn(galleryIds, PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
+                    .stream().map(image -> ImageMapper.toImageDTO(image, imageUrlSigner))
+                    .collect(Collectors.toList());
+        });
     }
 
     /**
@@ -213,18 +412,21 @@ public class ImageService {
      * @param pageSize Integer Size of the pages
      * @param sortBy   String sort by field
      * @param userId   Long id of the user to be fetched
-     * @return {@link List<ImageDTO>}
+     * @return {@link ListingDTO} of the images
      */
-    public List<ImageDTO> getUserImagesByName(Integer pageNo, Integer pageSize, String sortBy,
-                                              Long userId, String imageName) {
-        List<Gallery> userGalleries = galleryRepository.findAllByUserId(userId);
-        Long[] galleryIds = userGalleries
-                .stream().map(Gallery::getId).toArray(Long[]::new);
-
-        return imageRepository.findAllByGalleryIdInAndNameContaining(galleryIds, imageName,
-                PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
-                .stream().map(ImageMapper::toImageDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public ListingDTO<ImageDTO> getUserImagesByName(Integer pageNo, Integer pageSize, String sortBy,
+                                                    @ShardKey Long userId, String imageName) {
+        return listingVersions.uncached(userId, () -> {
+            List<Gallery> userGalleries = galleryRepository.findAllByUserId(userId);
+            Long[] galleryIds = userGalleries
+                    .stream().map(Gallery::getId).toArray(Long[]::new);
+
+            return imageRepository.findAllByGalleryIdInAndNameContaining(galleryIds, imageName,
+                    PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
+                    .stream().map(image -> ImageMapper.toImageDTO(image, imageUrlSigner))
+                    .collect(Collectors.toList());
+        });
     }
 
     /**
@@ -251,6 +453,68 @@ public class ImageService {
         return true;
     }
 
+    /**
+     * Fetches the images with the given ids in a single query, checking they all belong to the user.
+     * <p>
+     * Throws {@link ImageNotFoundException} if any of them doesn't.
+     *
+     * @param userId   Long id of the user
+     * @param imageIds List<Long> ids of the images
+     * @return List<Image>
+     */
+    private List<Image> findOwnedImages(Long userId, List<Long> imageIds) {
+        Set<Long> ids = new HashSet<>(imageIds);
+        List<Image> images = imageRepository.findAllByIdInAndGalleryUserId(ids, userId);
+
+        if (images.size() != ids.size()) {
+            images.forEach(image -> ids.remove(image.getId()));
+            throw new ImageNotFoundException(ids);
+        }
+        return images;
+    }
+
+    private Timer savePhase(String phase) {
+        return Timer.builder("gallery.image.save")
+                .description("Phases of the image uploads")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
+    // the files are only removed once nothing can roll back the delete of their rows
+    private void deleteAfterCommit(List<String> locations) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    imageStorageRepository.deleteImages(locations);
+                } catch (RuntimeException e) {
+                    log.error("Failed to delete the files of {} images: {}", locations.size(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    // a rejected or failed upload leaves no file behind
+    private void deleteOnRollback(String location) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    imageStorageRepository.deleteImage(location);
+                } catch (RuntimeException e) {
+                    log.error("Failed to delete the file of a rolled back upload {}: {}", location, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private long totalBytes(List<Image> images) {
+        return images.stream().mapToLong(Image::getFileSize).sum();
+    }
+
     /**
      * Returns the {@link Image} object based on user id, gallery name and image name
      *
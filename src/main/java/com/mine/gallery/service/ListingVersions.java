@@ -0,0 +1,118 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.configuration.CacheConfig;
+import com.mine.gallery.exception.user.UserNotFoundException;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardKey;
+import com.mine.gallery.service.dto.ListingDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Versions of the gallery and image listings of every user, part of the keys of the cached listings
+ * (see {@link CacheConfig#LISTINGS}). The version is stored with the user and moved in the transaction of
+ * every change to the galleries or images of the user, so the cached listings of the old version are never
+ * read again and expire from the cache, on every instance.
+ * <p>
+ * A listing reads the version in its own transaction before querying, so both come from the same database,
+ * even from a replica that lags behind. The version commits together with the change that moved it, so a
+ * listing never holds less than its version: one that runs while the user changes something can only
+ * cache the change under the old version, never the old state under the new one.
+ * The version is handed out with the listing, as part of its ETag. It is read on its own before the listing,
+ * so a request whose ETag is still current is answered without running the listing.
+ *
+ * @author TrusTio
+ */
+@Component
+public class ListingVersions {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * @param userId Long id of the user
+     * @return long current version of the listings of the user
+     */
+    @Transactional(readOnly = true)
+    public long current(@ShardKey Long userId) {
+        return version(userId);
+    }
+
+    /**
+     * Fetches a listing of the user from the cache under the given version, as read by the caller for the ETag,
+     * without any query. When it isn't cached, queries it and caches it under the version read in the transaction
+     * of the listing, so the version and the listing are read from the same database even when the given version
+     * came from another one.
+     *
+     * @param userId  Long id of the user
+     * @param version long version of the listings of the user the caller expects
+     * @param key     List<?> name and parameters of the listing
+     * @param listing Supplier querying the listing
+     * @return {@link ListingDTO} the listing with the version it was read at
+     */
+    @SuppressWarnings("unchecked")
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> ListingDTO<T> cached(Long userId, long version, List<?> key, Supplier<List<T>> listing) {
+        Cache cache = cacheManager.getCache(CacheConfig.LISTINGS);
+        Cache.ValueWrapper cached = cache.get(new SimpleKey(userId, version, key));
+        if (cached != null) {
+            return (ListingDTO<T>) cached.get();
+        }
+
+        ListingDTO<T> read = uncached(userId, listing);
+        cache.put(new SimpleKey(userId, read.getVersion(), key), read);
+        return read;
+    }
+
+    /**
+     * Queries a listing of the user that isn't cached, after reading the current version in the transaction
+     * of the listing.
+     *
+     * @param userId  Long id of the user
+     * @param listing Supplier querying the listing
+     * @return {@link ListingDTO} the listing with the version it was read at
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> ListingDTO<T> uncached(Long userId, Supplier<List<T>> listing) {
+        long version = version(userId);
+        return new ListingDTO<>(version, listing.get());
+    }
+
+    /**
+     * Moves the user to a new version in the current transaction.
+     *
+     * @param userId Long id of the user whose galleries or images changed
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void changed(Long userId) {
+        if (userRepository.moveListingVersion(userId) == 0) {
+            throw new UserNotFoundException(userId);
+        }
+    }
+
+    /**
+     * Moves the owners of the galleries in the id range to a new version in the current transaction,
+     * after changes to the galleries that aren't made per user.
+     *
+     * @param fromId Long first id of the range
+     * @param toId   Long last id of the range
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void changedGalleries(Long fromId, Long toId) {
+        userRepository.moveListingVersionsOfGalleries(fromId, toId);
+    }
+
+    private long version(Long userId) {
+        return userRepository.findListingVersionById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+    }
+}
@@ -0,0 +1,236 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.exception.profiling.ProfilingException;
+import com.mine.gallery.exception.profiling.RecordingNotFoundException;
+import com.mine.gallery.service.dto.RecordingDTO;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for the on-demand and continuous Java Flight Recorder recordings.
+ * <p>
+ * On-demand recordings are bounded: one runs at a time, for at most the configured duration,
+ * and only the latest few are kept on disk. The continuous recording keeps a rolling window
+ * of the last events on disk, which can be dumped after an incident.
+ *
+ * @author TrusTio
+ */
+@Service
+@Slf4j
+public class ProfilingService {
+    private static final String CONTINUOUS = "gallery-continuous";
+
+    private final Path directory;
+    private final Duration maxDuration;
+    private final int maxRecordings;
+    private final boolean continuousEnabled;
+    private final Duration continuousMaxAge;
+    private final DataSize continuousMaxSize;
+
+    private final Deque<Recording> recordings = new ArrayDeque<>();
+    private Recording continuous;
+
+    public ProfilingService(@Value("${gallery.profiling.directory:recordings}") String directory,
+                            @Value("${gallery.profiling.max-duration:5m}") Duration maxDuration,
+                            @Value("${gallery.profiling.max-recordings:5}") int maxRecordings,
+                            @Value("${gallery.profiling.continuous.enabled:false}") boolean continuousEnabled,
+                            @Value("${gallery.profiling.continuous.max-age:1h}") Duration continuousMaxAge,
+                            @Value("${gallery.profiling.continuous.max-size:250MB}") DataSize continuousMaxSize) {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.maxDuration = maxDuration;
+        this.maxRecordings = maxRecordings;
+        this.continuousEnabled = continuousEnabled;
+        this.continuousMaxAge = continuousMaxAge;
+        this.continuousMaxSize = continuousMaxSize;
+    }
+
+    /**
+     * Starts the continuous recording, if it's enabled.
+     */
+    @PostConstruct
+    public void startContinuous() {
+        if (!continuousEnabled || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        continuous = new Recording(configuration("default"));
+        continuous.setName(CONTINUOUS);
+        continuous.setToDisk(true);
+        continuous.setMaxAge(continuousMaxAge);
+        continuous.setMaxSize(continuousMaxSize.toBytes());
+        continuous.start();
+        log.info("Continuous flight recording started, keeping the last {}", continuousMaxAge);
+    }
+
+    /**
+     * Starts a recording with the given JFR configuration, which stops by itself after the duration
+     * and is written to the recordings directory.
+     * <p>
+     * Throws {@link ProfilingException} if another recording is running, the duration is out of bounds
+     * or the profile doesn't exist.
+     *
+     * @param profile  String name of the JFR configuration, "default" or "profile"
+     * @param duration Duration of the recording
+     * @return {@link RecordingDTO} of the started recording
+     */
+    public synchronized RecordingDTO start(String profile, Duration duration) {
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new ProfilingException(String.format("The duration should be between 1s and %s.", maxDuration));
+        }
+        Configuration configuration = configuration(profile);
+        if (recordings.stream().anyMatch(recording -> recording.getState() == RecordingState.RUNNING)) {
+            throw new ProfilingException("Another recording is running.");
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new ProfilingException("Java Flight Recorder is not available.");
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName(profile);
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        try {
+            Files.createDirectories(directory);
+            recording.setDestination(directory.resolve("recording-" + recording.getId() + ".jfr"));
+        } catch (IOException e) {
+            recording.close();
+            throw new ProfilingException("The recordings directory is not writable.");
+        }
+        recording.start();
+        log.info("Flight recording {} started with profile {} for {}", recording.getId(), profile, duration);
+
+        recordings.addLast(recording);
+        while (recordings.size() > maxRecordings) {
+            discard(recordings.removeFirst());
+        }
+
+        return toRecordingDTO(recording);
+    }
+
+    /**
+     * Fetches the on-demand recordings, oldest first.
+     *
+     * @return List<RecordingDTO>
+     */
+    public synchronized List<RecordingDTO> getRecordings() {
+        return recordings.stream().map(this::toRecordingDTO).collect(Collectors.toList());
+    }
+
+    /**
+     * Stops a running recording before its duration elapses, writing it to the recordings directory.
+     *
+     * @param recordingId Long id of the recording
+     * @return {@link RecordingDTO} of the stopped recording
+     */
+    public synchronized RecordingDTO stop(Long recordingId) {
+        Recording recording = getRecording(recordingId);
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return toRecordingDTO(recording);
+    }
+
+    /**
+     * Fetches the file of a finished recording.
+     * <p>
+     * Throws {@link ProfilingException} if the recording is still running.
+     *
+     * @param recordingId Long id of the recording
+     * @return FileSystemResource with the .jfr file
+     */
+    public synchronized FileSystemResource getRecordingFile(Long recordingId) {
+        Recording recording = getRecording(recordingId);
+        if (recording.getState() != RecordingState.STOPPED && recording.getState() != RecordingState.CLOSED) {
+            throw new ProfilingException("The recording is still running.");
+        }
+        return new FileSystemResource(recording.getDestination());
+    }
+
+    /**
+     * Dumps the events kept by the continuous recording to the recordings directory.
+     * <p>
+     * Throws {@link ProfilingException} if the continuous recording is disabled.
+     *
+     * @return FileSystemResource with the .jfr file
+     */
+    public synchronized FileSystemResource dumpContinuous() {
+        if (continuous == null) {
+            throw new ProfilingException("The continuous recording is disabled.");
+        }
+        Path dump = directory.resolve(CONTINUOUS + ".jfr");
+        try {
+            Files.createDirectories(directory);
+            continuous.dump(dump);
+        } catch (IOException e) {
+            throw new ProfilingException("The continuous recording could not be dumped.");
+        }
+        return new FileSystemResource(dump);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        recordings.forEach(Recording::close);
+        if (continuous != null) {
+            continuous.close();
+        }
+    }
+
+    private Recording getRecording(Long recordingId) {
+        return recordings.stream()
+                .filter(recording -> recording.getId() == recordingId)
+                .findFirst()
+                .orElseThrow(() -> new RecordingNotFoundException(recordingId));
+    }
+
+    private void discard(Recording recording) {
+        Path destination = recording.getDestination();
+        recording.close();
+        try {
+            if (destination != null) {
+                Files.deleteIfExists(destination);
+            }
+        } catch (IOException e) {
+            log.error("Failed to delete the flight recording {}: {}", destination, e.getMessage());
+        }
+    }
+
+    /**
+     * Only the configurations shipped with the JDK can be used.
+     */
+    private Configuration configuration(String profile) {
+        return Configuration.getConfigurations().stream()
+                .filter(configuration -> configuration.getName().equals(profile))
+                .findFirst()
+                .orElseThrow(() -> new ProfilingException(String.format("Profile '%s' doesn't exist.", profile)));
+    }
+
+    private RecordingDTO toRecordingDTO(Recording recording) {
+        return new RecordingDTO()
+                .setId(recording.getId())
+                .setProfile(recording.getName())
+                .setState(recording.getState().name())
+                .setStartTime(recording.getStartTime())
+                .setDuration(recording.getDuration())
+                .setSize(recording.getState() == RecordingState.RUNNING
+                        ? recording.getSize()
+                        : recording.getDestination().toFile().length());
+    }
+}
@@ -0,0 +1,305 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.exception.storage.StorageQuotaExceededException;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardContext;
+import com.mine.gallery.persistence.shard.ShardMap;
+import com.mine.gallery.persistence.shard.ShardTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the storage used by every user and enforces the storage quota on upload.
+ * <p>
+ * Uploads and deletes only add to striped in-memory counters, so checking and reserving the quota
+ * doesn't touch the database after the usage of the user was loaded once. A rolled back upload or
+ * delete takes its change back from the counters.
+ * <p>
+ * The counters are flushed to the {@link com.mine.gallery.persistence.entity.User} rows periodically.
+ * The uploads of a flush are added with a conditional update, which only succeeds while they fit
+ * in the quota together with the uploads flushed by the other instances. When they don't, the usage is
+ * still recorded, as the images exist, and the user is reported. Every flush then reloads the usage
+ * of all users known to the instance, so the uploads of the other instances and the repairs count
+ * against the quota here within one flush interval.
+ * <p>
+ * Usage that drifted from the images table, or that was never counted because the images
+ * predate the quota, is recomputed by {@link #repairAll()}.
+ *
+ * @author TrusTio
+ */
+@Service
+@Slf4j
+public class StorageQuotaService {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ShardTemplate shardTemplate;
+    @Autowired
+    private ShardMap shardMap;
+
+    @Value("${gallery.storage.quota-bytes:1073741824}")
+    private long quotaBytes;
+    @Value("${gallery.storage.quota-objects:10000}")
+    private long quotaObjects;
+    @Value("${gallery.storage.repair-batch-size:1000}")
+    private int batchSize;
+
+    private final ConcurrentMap<Long, Usage> usages = new ConcurrentHashMap<>();
+
+    /**
+     * Checks that a new image would fit in the quota of the user, so an upload over
+     * the quota is rejected before its file is written.
+     * Only {@link #reserve} guarantees the image fits.
+     * <p>
+     * Throws {@link StorageQuotaExceededException} if the image doesn't fit in the quota.
+     *
+     * @param userId Long id of the user
+     * @param bytes  long size of the image
+     */
+    public void checkAvailable(Long userId, long bytes) {
+        Usage usage = usageOf(userId);
+        if (usage.bytes() + bytes > quotaBytes || usage.objects() >= quotaObjects) {
+            throw new StorageQuotaExceededException(userId);
+        }
+    }
+
+    /**
+     * Reserves space for a new image of the user. The reservation is released
+     * if the surrounding transaction rolls back.
+     * <p>
+     * Throws {@link StorageQuotaExceededException} if the image doesn't fit in the quota.
+     *
+     * @param userId Long id of the user
+     * @param bytes  long size of the image
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Long userId, long bytes) {
+        Usage usage = usageOf(userId);
+        usage.add(bytes, 1);
+
+        if (usage.bytes() > quotaBytes || usage.objects() > quotaObjects) {
+            usage.add(-bytes, -1);
+            throw new StorageQuotaExceededException(userId);
+        }
+        undoOnRollback(usage, bytes, 1);
+    }
+
+    /**
+     * Releases the space used by deleted images of the user. The space is taken
+     * back if the surrounding transaction rolls back.
+     *
+     * @param userId  Long id of the user
+     * @param bytes   long total size of the deleted images
+     * @param objects long number of deleted images
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long userId, long bytes, long objects) {
+        Usage usage = usageOf(userId);
+        usage.add(-bytes, -objects);
+        undoOnRollback(usage, -bytes, -objects);
+    }
+
+    /**
+     * Writes the pending changes of every user to the database, each user on its own shard,
+     * then reloads the usage of all users known to the instance.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${gallery.storage.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        usages.forEach((userId, usage) -> {
+            long bytes = usage.pendingBytes.sum();
+            long objects = usage.pendingObjects.sum();
+            if (bytes == 0 && objects == 0) {
+                return;
+            }
+
+            try {
+                shardTemplate.executeOn(shardMap.shardFor(userId), () -> write(userId, bytes, objects));
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush the storage usage of user {}: {}", userId, e.getMessage());
+                return;
+            }
+            usage.markPersisted(bytes, objects);
+        });
+
+        reload();
+    }
+
+    /**
+     * Recomputes the storage usage of all users on every shard from their images. Every range
+     * of users is updated in its own short transaction to avoid long locks. The pending changes
+     * of this instance are flushed first and no flush runs until the repair ends; those of the other
+     * instances may be counted twice until the next repair, which errs on the side of rejecting uploads.
+     *
+     * @return int number of users updated
+     */
+    @Scheduled(cron = "${gallery.storage.repair-cron:0 15 4 * * *}")
+    public synchronized int repairAll() {
+        flush();
+
+        int updated = 0;
+        for (int shard = 0; shard < shardTemplate.getShardCount(); shard++) {
+            updated += repairShard(shard);
+        }
+        log.info("Recomputed the storage usage of {} users", updated);
+
+        reload();
+        return updated;
+    }
+
+    private int repairShard(int shard) {
+        Long minId = shardTemplate.executeOn(shard, userRepository::findMinId);
+        Long maxId = shardTemplate.executeOn(shard, userRepository::findMaxId);
+        if (minId == null) {
+            return 0;
+        }
+
+        // ids on a shard are spaced by the shard count
+        long step = (long) batchSize * shardTemplate.getShardCount();
+        int updated = 0;
+        for (long from = minId; from <= maxId; from += step) {
+            long fromId = from;
+            long toId = from + step - 1;
+            updated += shardTemplate.executeOn(shard,
+                    () -> userRepository.recomputeStorageUsage(fromId, toId));
+        }
+        return updated;
+    }
+
+    private int write(Long userId, long bytes, long objects) {
+        if ((bytes > 0 || objects > 0) && userRepository
+                .addStorageUsageWithinQuota(userId, bytes, objects, quotaBytes, quotaObjects) == 1) {
+            return 1;
+        }
+
+        int updated = userRepository.addStorageUsage(userId, bytes, objects);
+        if (updated == 1 && (bytes > 0 || objects > 0)) {
+            // uploaded on several instances at once, the reloaded usage rejects the next ones everywhere
+            log.warn("User {} exceeded the storage quota with uploads to several instances", userId);
+        }
+        return updated;
+    }
+
+    // called with the lock of flush held, so no flush writes between a query and its update
+    private void reload() {
+        Map<Integer, List<Long>> userIdsByShard = new HashMap<>();
+        usages.keySet().forEach(userId ->
+                userIdsByShard.computeIfAbsent(shardMap.shardFor(userId), shard -> new ArrayList<>()).add(userId));
+
+        userIdsByShard.forEach((shard, userIds) -> {
+            for (int from = 0; from < userIds.size(); from += batchSize) {
+                List<Long> batch = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+                try {
+                    Set<Long> found = new HashSet<>();
+                    shardTemplate.executeOn(shard, () -> userRepository.findStorageUsageByIdIn(batch))
+                            .forEach(stored -> {
+                                found.add(stored.getId());
+                                Usage usage = usages.get(stored.getId());
+                                if (usage != null) {
+                                    usage.persisted(stored.getStorageBytes(), stored.getStorageObjects());
+                                }
+                            });
+                    // deleted users can't upload anymore
+                    batch.stream()
+                            .filter(userId -> !found.contains(userId))
+                            .forEach(userId -> usages.computeIfPresent(userId,
+                                    (id, usage) -> usage.isPending() ? usage : null));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to reload the storage usage of {} users: {}", batch.size(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Usage usageOf(Long userId) {
+        Usage usage = usages.get(userId);
+        if (usage != null) {
+            return usage;
+        }
+
+        // loaded outside of computeIfAbsent to keep the query out of the map lock
+        Usage loaded = ShardContext.callOn(shardMap.shardFor(userId),
+                () -> userRepository.findStorageUsageById(userId)
+                        .map(stored -> new Usage(stored.getStorageBytes(), stored.getStorageObjects()))
+                        .orElseGet(() -> new Usage(0, 0)));
+
+        Usage existing = usages.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void undoOnRollback(Usage usage, long bytes, long objects) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    usage.add(-bytes, -objects);
+                }
+            }
+        });
+    }
+
+    /**
+     * Usage of a single user, split into what is already in the database
+     * and what is still pending to be flushed.
+     */
+    private static final class Usage {
+        private final AtomicLong persistedBytes;
+        private final AtomicLong persistedObjects;
+        private final LongAdder pendingBytes = new LongAdder();
+        private final LongAdder pendingObjects = new LongAdder();
+
+        private Usage(long bytes, long objects) {
+            this.persistedBytes = new AtomicLong(bytes);
+            this.persistedObjects = new AtomicLong(objects);
+        }
+
+        private void add(long bytes, long objects) {
+            pendingBytes.add(bytes);
+            pendingObjects.add(objects);
+        }
+
+        private long bytes() {
+            return persistedBytes.get() + pendingBytes.sum();
+        }
+
+        private long objects() {
+            return persistedObjects.get() + pendingObjects.sum();
+        }
+
+        private boolean isPending() {
+            return pendingBytes.sum() != 0 || pendingObjects.sum() != 0;
+        }
+
+        // may count the flushed delta twice for a moment, which errs on the side of rejecting uploads
+        private void markPersisted(long bytes, long objects) {
+            persistedBytes.addAndGet(bytes);
+            persistedObjects.addAndGet(objects);
+            pendingBytes.add(-bytes);
+            pendingObjects.add(-objects);
+        }
+
+        private void persisted(long bytes, long objects) {
+            persistedBytes.set(bytes);
+            persistedObjects.set(objects);
+        }
+    }
+}
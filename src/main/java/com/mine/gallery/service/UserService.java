@@ -1,5 +1,6 @@
 package com.mine.gallery.service;
 
+import com.mine.gallery.configuration.CacheConfig;
 import com.mine.gallery.exception.role.RoleNotFoundException;
 import com.mine.gallery.exception.user.SignUpValidationException;
 import com.mine.gallery.exception.user.UserNotFoundException;
@@ -9,6 +10,9 @@ import com.mine.gallery.persistence.entity.User;
 import com.mine.gallery.persistence.repository.GalleryRepository;
 import com.mine.gallery.persistence.repository.RoleRepository;
 import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardKey;
+import com.mine.gallery.persistence.shard.ShardTemplate;
+import com.mine.gallery.security.UserDetailsServiceImpl;
 import com.mine.gallery.service.dto.SignupUserDTO;
 import com.mine.gallery.service.dto.UserDTO;
 import com.mine.gallery.service.mapper.UserMapper;
@@ -17,10 +21,14 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Errors;
 
 import java.util.Collections;
@@ -44,7 +52,11 @@ public class UserService {
     @Autowired
     private GalleryRepository galleryRepository;
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ShardTemplate shardTemplate;
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
 
     /**
      * Checks if the email and username are taken and throws an exception if it fails to.
@@ -55,13 +67,15 @@ public class UserService {
      * @param signupUserDTO The {@link SignupUserDTO} object to be added as User in the database
      * @return The {@link SignupUserDTO} object saved in the database as {@link User}
      */
-    public SignupUserDTO signUp(SignupUserDTO signupUserDTO, Errors errors) {
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USER_DETAILS, key = "#signupUserDTO.username")
+    public SignupUserDTO signUp(@ShardKey(property = "username") SignupUserDTO signupUserDTO, Errors errors) {
 
         if (userRepository.existsByUsername(signupUserDTO.getUsername())) {
             throw new SignUpValidationException("Username taken!");
         }
 
-        if (userRepository.existsByEmail(signupUserDTO.getEmail())) {
+        if (shardTemplate.anyMatch(() -> userRepository.existsByEmail(signupUserDTO.getEmail()))) {
             throw new SignUpValidationException("Email taken!");
         }
 
@@ -77,7 +91,7 @@ public class UserService {
         User user = new User()
                 .setUsername(signupUserDTO.getUsername())
                 .setEmail(signupUserDTO.getEmail())
-                .setPassword(bCryptPasswordEncoder.encode(signupUserDTO.getPassword()))
+                .setPassword(passwordEncoder.encode(signupUserDTO.getPassword()))
                 .setRoles(Collections.singleton(role));
 
         return UserMapper.toSignupUserDto(userRepository.save(user));
@@ -85,15 +99,31 @@ public class UserService {
 
     /**
      * Fetches all the users paginated, sorted and mapped to {@link UserDTO}.
+     * When there are multiple shards, the first pages of every shard are fetched
+     * and merged in memory.
      *
      * @param pageNo   Integer Number of the page to be fetched
      * @param pageSize Integer Size of the pages
      * @param sortBy   String sort by field
      * @return {@link List<UserDTO>} containing the user data
      */
+    @Transactional(readOnly = true)
     public List<UserDTO> getAllUsers(Integer pageNo, Integer pageSize, String sortBy) {
-        return userRepository.findAll(PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
+        if (shardTemplate.getShardCount() == 1) {
+            return userRepository.findAll(PageRequest.of(pageNo, pageSize, Sort.by(sortBy)))
+                    .stream()
+                    .map(UserMapper::toUserDto)
+                    .collect(Collectors.toList());
+        }
+
+        PageRequest firstPages = PageRequest.of(0, (pageNo + 1) * pageSize, Sort.by(sortBy));
+
+        return shardTemplate.scatter(() -> userRepository.findAll(firstPages).getContent())
                 .stream()
+                .flatMap(List::stream)
+                .sorted(new PropertyComparator<>(sortBy, false, true))
+                .skip((long) pageNo * pageSize)
+                .limit(pageSize)
                 .map(UserMapper::toUserDto)
                 .collect(Collectors.toList());
     }
@@ -101,10 +131,13 @@ public class UserService {
 
     /**
      * Adds ADMIN role to the user.
+     * The cached summary and login details of the user are evicted once the change is committed.
      *
      * @param userId Long id of the user
      */
-    public void setAdmin(Long userId) {
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#userId")
+    public void setAdmin(@ShardKey Long userId) {
         Role role = roleRepository.findByName(RoleName.ROLE_ADMIN)
                 .orElseThrow(RoleNotFoundException::new);
         User user = userRepository.findById(userId)
@@ -113,14 +146,18 @@ public class UserService {
         user.addRole(role);
 
         userRepository.save(user);
+        userDetailsService.evict(user.getUsername());
     }
 
     /**
      * Removes the ADMIN role from the user
+     * The cached summary and login details of the user are evicted once the change is committed.
      *
      * @param userId Long id of the user
      */
-    public void removeAdmin(Long userId) {
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#userId")
+    public void removeAdmin(@ShardKey Long userId) {
         Role role = roleRepository.findByName(RoleName.ROLE_ADMIN)
                 .orElseThrow(RoleNotFoundException::new);
         User user = userRepository.findById(userId)
@@ -129,15 +166,19 @@ public class UserService {
         user.removeRole(role);
 
         userRepository.save(user);
+        userDetailsService.evict(user.getUsername());
     }
 
     /**
-     * Fetches all the information about specific user using user id
+     * Fetches all the information about specific user using user id.
+     * The result is cached until the roles of the user change.
      *
      * @param userId Long id of the user to be fetched
      * @return the found {@link UserDTO} if such exists
      */
-    public UserDTO getUserById(Long userId) {
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#userId")
+    public UserDTO getUserById(@ShardKey Long userId) {
         return UserMapper.toUserDto(userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId)));
     }
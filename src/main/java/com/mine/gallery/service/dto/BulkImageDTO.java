@@ -0,0 +1,26 @@
+package com.mine.gallery.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * DTO class for bulk operations on {@link com.mine.gallery.persistence.entity.Image}
+ *
+ * @author TrusTio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class BulkImageDTO {
+    @NotEmpty(message = "At least one image id is required.")
+    @Size(max = 1000, message = "At most 1000 images can be processed at once.")
+    private List<Long> imageIds;
+    private Long galleryId;
+}
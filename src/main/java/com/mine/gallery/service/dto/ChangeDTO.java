@@ -0,0 +1,27 @@
+package com.mine.gallery.service.dto;
+
+import com.mine.gallery.persistence.entity.ChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO class for the {@link com.mine.gallery.persistence.entity.ChangeLogEntry}
+ *
+ * @author TrusTio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class ChangeDTO {
+    private long seq;
+    private ChangeType type;
+    private Long galleryId;
+    private Long imageId;
+    private String name;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.mine.gallery.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * DTO class for a page of the change feed of a user. The next page, or the next sync,
+ * starts after {@link #next}
+ *
+ * @author TrusTio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class ChangesDTO {
+    private List<ChangeDTO> changes;
+    private long next;
+    private boolean more;
+}
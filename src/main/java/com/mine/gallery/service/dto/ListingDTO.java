@@ -0,0 +1,23 @@
+package com.mine.gallery.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * DTO class for a page of a gallery or image listing of a user, with the version of the listings
+ * of the user it was read at (see {@link com.mine.gallery.service.ListingVersions})
+ *
+ * @author TrusTio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class ListingDTO<T> {
+    private long version;
+    private List<T> items;
+}
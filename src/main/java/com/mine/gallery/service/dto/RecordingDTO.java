@@ -0,0 +1,23 @@
+package com.mine.gallery.service.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * DTO class for a Java Flight Recorder recording
+ *
+ * @author TrusTio
+ */
+@Data
+@Accessors(chain = true)
+public class RecordingDTO {
+    private Long id;
+    private String profile;
+    private String state;
+    private Instant startTime;
+    private Duration duration;
+    private Long size;
+}
@@ -0,0 +1,21 @@
+package com.mine.gallery.service.dto;
+
+import com.mine.gallery.persistence.entity.RoleName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * DTO class for the {@link com.mine.gallery.persistence.entity.Role}
+ *
+ * @author TrusTio
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class RoleDTO {
+    private Long id;
+    private RoleName name;
+}
@@ -1,6 +1,5 @@
 package com.mine.gallery.service.dto;
 
-import com.mine.gallery.persistence.entity.Role;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -22,5 +21,5 @@ public class UserDTO {
     private Long id;
     private String username;
     private String email;
-    private Set<Role> roles = new HashSet<>();
+    private Set<RoleDTO> roles = new HashSet<>();
 }
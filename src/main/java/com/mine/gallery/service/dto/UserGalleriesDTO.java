@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 
+import java.time.LocalDateTime;
+
 /**
  * DTO class for the {@link com.mine.gallery.persistence.entity.Gallery}
  *
@@ -18,4 +20,8 @@ public class UserGalleriesDTO {
     private Long id;
     private String name;
     private String url;
+    private Long imageCount;
+    private Long totalBytes;
+    private LocalDateTime lastUpdated;
+    private String coverThumbnail;
 }
@@ -0,0 +1,136 @@
+package com.mine.gallery.service.limit;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the observed latency, gradient style.
+ * <p>
+ * A long term average of the latency serves as the baseline of a healthy system and a short term
+ * average tracks the current latency. While they are close the limit grows by about its square root,
+ * once the current latency rises above the baseline (past the knee, where requests start queueing
+ * on the disk or the CPU) the limit shrinks in proportion. Calls above the limit are rejected
+ * right away instead of queueing and making every call slower.
+ *
+ * @author TrusTio
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double LONG_WINDOW = 600;
+    private static final double SHORT_WINDOW = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRtt;
+    private double shortRtt;
+
+    /**
+     * @param initialLimit int limit to start with
+     * @param minLimit     int the limit never goes below this
+     * @param maxLimit     int the limit never goes above this
+     * @param tolerance    double how much slower than the baseline the calls can get before the limit shrinks
+     * @param smoothing    double how fast the limit moves towards the new estimate, between 0 and 1
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Acquires a permit for a call.
+     *
+     * @return {@link Permit} to be released once the call is done, empty if the limit is reached
+     */
+    public Optional<Permit> tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    Optional<Permit> tryAcquire(long now) {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return Optional.empty();
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        return Optional.of(new Permit(now, current + 1));
+    }
+
+    /**
+     * @return int the current limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return int number of calls in progress
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+            shortRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+        longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+
+        // the baseline drifted far above the current latency (e.g. after an overload), let it recover faster
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // don't grow the limit while it isn't used, there's no latency to judge it by
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - smoothing) + estimate * smoothing;
+
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    /**
+     * Permit of a call, released exactly once.
+     */
+    public final class Permit {
+        private final long start;
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(long start, int inFlightAtStart) {
+            this.start = start;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Releases the permit and feeds the latency of the call to the limit.
+         */
+        public void release() {
+            release(System.nanoTime());
+        }
+
+        void release(long now) {
+            if (released) {
+                return;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            onSample(now - start, inFlightAtStart);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mine.gallery.service.limit;
+
+import com.mine.gallery.exception.generic.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Runs the public methods of the {@link com.mine.gallery.service.ImageService} under an
+ * {@link AdaptiveConcurrencyLimiter} per {@link CallClass}, so slow uploads shrink only the limit
+ * of the uploads and never reject the reads. Calls above the limit fail fast with {@link ServiceOverloadedException}.
+ * <p>
+ * Ordered before the transaction interceptor, so a rejected call never opens a transaction.
+ * The listings are cached inside their transactions (see {@link com.mine.gallery.service.ListingVersions}),
+ * so a cached listing still takes a permit, though it runs no query.
+ * <p>
+ * The limit, the calls in progress and the rejected calls are published as the
+ * gallery.image.concurrency.* metrics, tagged with the class of the calls.
+ *
+ * @author TrusTio
+ */
+@Aspect
+@Order(ConcurrencyLimitAspect.ORDER)
+public class ConcurrencyLimitAspect {
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 1;
+
+    /**
+     * Classes of calls with separate limits
+     */
+    public enum CallClass {
+        UPLOAD, READ, MODIFY
+    }
+
+    private final Map<CallClass, AdaptiveConcurrencyLimiter> limiters;
+    private final Map<CallClass, Counter> rejected = new EnumMap<>(CallClass.class);
+
+    public ConcurrencyLimitAspect(Map<CallClass, AdaptiveConcurrencyLimiter> limiters, MeterRegistry meterRegistry) {
+        this.limiters = new EnumMap<>(limiters);
+
+        this.limiters.forEach((callClass, limiter) -> {
+            String tag = callClass.name().toLowerCase();
+            Gauge.builder("gallery.image.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current adaptive limit of concurrent image service calls")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("gallery.image.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("Image service calls in progress")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            rejected.put(callClass, Counter.builder("gallery.image.concurrency.rejected")
+                    .description("Image service calls rejected by the concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry));
+        });
+    }
+
+    @Around("execution(public * com.mine.gallery.service.ImageService.*(..))")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        CallClass callClass = classify(joinPoint.getSignature().getName());
+        AdaptiveConcurrencyLimiter limiter = limiters.get(callClass);
+        if (limiter == null) {
+            return joinPoint.proceed();
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire().orElse(null);
+        if (permit == null) {
+            rejected.get(callClass).increment();
+            throw new ServiceOverloadedException();
+        }
+
+        try {
+            return joinPoint.proceed();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Uploads write and thumbnail a file, reads fetch files and listings,
+     * and the rest only change the database.
+     */
+    static CallClass classify(String methodName) {
+        if (methodName.equals("save")) {
+            return CallClass.UPLOAD;
+        }
+        if (methodName.startsWith("find") || methodName.startsWith("get")) {
+            return CallClass.READ;
+        }
+        return CallClass.MODIFY;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mine.gallery.service.mapper;
+
+import com.mine.gallery.persistence.entity.ChangeLogEntry;
+import com.mine.gallery.service.dto.ChangeDTO;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps the {@link ChangeLogEntry} object to a {@link ChangeDTO} object
+ *
+ * @author TrusTio
+ */
+@Component
+public class ChangeMapper {
+
+    /**
+     * Returns new {@link ChangeDTO} object created from the {@link ChangeLogEntry} parameter.
+     *
+     * @param change {@link ChangeLogEntry} object to be mapped to ChangeDTO object
+     * @return {@link ChangeDTO} object
+     */
+    public static ChangeDTO toChangeDTO(ChangeLogEntry change) {
+        return new ChangeDTO()
+                .setSeq(change.getSeq())
+                .setType(change.getType())
+                .setGalleryId(change.getGalleryId())
+                .setImageId(change.getImageId())
+                .setName(change.getName())
+                .setCreatedAt(change.getCreatedAt());
+    }
+}
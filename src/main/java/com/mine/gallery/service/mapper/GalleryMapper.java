@@ -1,6 +1,8 @@
 package com.mine.gallery.service.mapper;
 
 import com.mine.gallery.persistence.entity.Gallery;
+import com.mine.gallery.persistence.entity.Image;
+import com.mine.gallery.security.ImageUrlSigner;
 import com.mine.gallery.service.dto.GalleryDTO;
 import com.mine.gallery.service.dto.UserGalleriesDTO;
 
@@ -26,15 +28,23 @@ public class GalleryMapper {
      * Returns new {@link UserGalleriesDTO} object created from the {@link Gallery} parameter
      *
      * @param gallery {@link Gallery} object to be mapped to {@link UserGalleriesDTO} object
-     * @return {@link UserGalleriesDTO} object with id, name and url to contents
+     * @param signer  {@link ImageUrlSigner} used to sign the url of the cover thumbnail
+     * @return {@link UserGalleriesDTO} object with id, name, url to contents and statistics
      */
-    public static UserGalleriesDTO toUserGalleriesDTO(Gallery gallery) {
+    public static UserGalleriesDTO toUserGalleriesDTO(Gallery gallery, ImageUrlSigner signer) {
+        Image cover = gallery.getCoverImage();
+
         return new UserGalleriesDTO()
                 .setId(gallery.getId())
                 .setName(gallery.getName())
                 .setUrl("http://localhost:8080/api/v1/users/"
                         + gallery.getUser().getId()
                         + "/galleries/"
-                        + gallery.getId());
+                        + gallery.getId())
+                .setImageCount(gallery.getImageCount())
+                .setTotalBytes(gallery.getTotalBytes())
+                .setLastUpdated(gallery.getLastUpdated())
+                .setCoverThumbnail(cover == null ? null
+                        : signer.sign(cover.getLocation(), ImageUrlSigner.THUMBNAIL));
     }
 }
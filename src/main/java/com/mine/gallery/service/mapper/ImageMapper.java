@@ -1,6 +1,7 @@
 package com.mine.gallery.service.mapper;
 
 import com.mine.gallery.persistence.entity.Image;
+import com.mine.gallery.security.ImageUrlSigner;
 import com.mine.gallery.service.dto.ImageDTO;
 import org.springframework.stereotype.Component;
 
@@ -13,23 +14,18 @@ import org.springframework.stereotype.Component;
 public class ImageMapper {
 
     /**
-     * Returns new {@link ImageDTO} object created from the {@link Image} parameter
+     * Returns new {@link ImageDTO} object created from the {@link Image} parameter.
+     * The urls are signed, so the files can be fetched without authentication until they expire.
      *
-     * @param image {@link Image} object to be mapped to ImageDTO object
+     * @param image  {@link Image} object to be mapped to ImageDTO object
+     * @param signer {@link ImageUrlSigner} used to sign the urls
      * @return {@link ImageDTO} object with name and url
      */
-    public static ImageDTO toImageDTO(Image image) {
+    public static ImageDTO toImageDTO(Image image, ImageUrlSigner signer) {
         return new ImageDTO()
                 .setId(image.getId())
                 .setName(image.getName())
-                .setThumbnail("http://localhost:8080/api/v1/image"
-                        + "/" + image.getGallery().getUser().getId()
-                        + "/" + image.getGallery().getId()
-                        + "/" + image.getName()
-                        + "/thumbnail")
-                .setUrl("http://localhost:8080/api/v1/image"
-                        + "/" + image.getGallery().getUser().getId()
-                        + "/" + image.getGallery().getId()
-                        + "/" + image.getName());
+                .setThumbnail(signer.sign(image.getLocation(), ImageUrlSigner.THUMBNAIL))
+                .setUrl(signer.sign(image.getLocation(), ImageUrlSigner.ORIGINAL));
     }
 }
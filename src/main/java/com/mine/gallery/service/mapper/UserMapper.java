@@ -1,10 +1,13 @@
 package com.mine.gallery.service.mapper;
 
 import com.mine.gallery.persistence.entity.User;
+import com.mine.gallery.service.dto.RoleDTO;
 import com.mine.gallery.service.dto.SignupUserDTO;
 import com.mine.gallery.service.dto.UserDTO;
 import org.springframework.stereotype.Component;
 
+import java.util.stream.Collectors;
+
 /**
  * Maps the {@link User} object to a {@link SignupUserDTO} object
  *
@@ -36,6 +39,8 @@ public class UserMapper {
                 .setId(user.getId())
                 .setUsername(user.getUsername())
                 .setEmail(user.getEmail())
-                .setRoles(user.getRoles());
+                .setRoles(user.getRoles().stream()
+                        .map(role -> new RoleDTO(role.getId(), role.getName()))
+                        .collect(Collectors.toSet()));
     }
 }
@@ -0,0 +1,194 @@
+package com.mine.gallery.timing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Breakdown of the time a request spent in each stage (auth, db, storage, thumbnail),
+ * together with the bytes allocated by the threads that worked on it.
+ * Rendered as the value of the Server-Timing response header.
+ * <p>
+ * The timing of the request is bound to the thread working on it, the image executors
+ * carry it over to their threads with {@link #propagate(Runnable)}. Recording is a no-op
+ * when no timing is bound, so the stages can be recorded unconditionally.
+ *
+ * @author TrusTio
+ */
+public final class ServerTiming {
+    public static final String HEADER = "Server-Timing";
+    /**
+     * Request header that asks for the Server-Timing header, only honoured for admins
+     */
+    public static final String REQUEST_HEADER = "X-Server-Timing";
+
+    public static final String AUTH = "auth";
+    public static final String DB = "db";
+    public static final String STORAGE = "storage";
+    public static final String THUMBNAIL = "thumbnail";
+
+    private static final ThreadLocal<Segment> CURRENT = new ThreadLocal<>();
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = allocationMXBean();
+
+    private final long start = System.nanoTime();
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    /**
+     * @return {@link ServerTiming} bound to the current thread, or null if there is none
+     */
+    public static ServerTiming current() {
+        Segment segment = CURRENT.get();
+        return segment == null ? null : segment.timing;
+    }
+
+    /**
+     * Adds the duration of a stage to the timing bound to the current thread.
+     *
+     * @param stage String name of the stage
+     * @param nanos long duration in nanoseconds
+     */
+    public static void record(String stage, long nanos) {
+        ServerTiming timing = current();
+        if (timing != null) {
+            timing.add(stage, nanos);
+        }
+    }
+
+    /**
+     * Wraps the task so it runs with the timing bound to the current thread,
+     * adding the bytes it allocates to it. Returns the task itself when no timing is bound.
+     *
+     * @param task Runnable task to be run on another thread
+     * @return Runnable
+     */
+    public static Runnable propagate(Runnable task) {
+        ServerTiming timing = current();
+        if (timing == null) {
+            return task;
+        }
+        return () -> timing.run(task);
+    }
+
+    /**
+     * Binds this timing to the current thread until the segment is detached.
+     * The bytes the thread allocates meanwhile are added to the timing.
+     *
+     * @return {@link Segment} to be detached on the same thread
+     */
+    public Segment attach() {
+        return new Segment(this);
+    }
+
+    /**
+     * Renders the stages, the allocated bytes and the total duration so far,
+     * including the allocations of the segment open on the current thread,
+     * e.g. {@code db;dur=2.1;desc="3 calls", alloc;desc="524288", total;dur=9.8}
+     *
+     * @return String value of the Server-Timing header
+     */
+    public String toHeader() {
+        StringBuilder header = new StringBuilder();
+        synchronized (stages) {
+            stages.forEach((name, stage) -> {
+                header.append(name).append(";dur=").append(millis(stage.nanos.get()));
+                if (stage.count.get() > 1) {
+                    header.append(";desc=\"").append(stage.count.get()).append(" calls\"");
+                }
+                header.append(", ");
+            });
+        }
+        if (THREAD_MX_BEAN != null) {
+            Segment segment = CURRENT.get();
+            long allocated = allocatedBytes.sum()
+                    + (segment != null && segment.timing == this ? segment.allocated() : 0);
+            header.append("alloc;desc=\"").append(allocated).append("\", ");
+        }
+        return header.append("total;dur=").append(millis(System.nanoTime() - start)).toString();
+    }
+
+    private void add(String stage, long nanos) {
+        Stage total;
+        synchronized (stages) {
+            total = stages.computeIfAbsent(stage, name -> new Stage());
+        }
+        total.nanos.addAndGet(nanos);
+        total.count.incrementAndGet();
+    }
+
+    private void run(Runnable task) {
+        Segment segment = attach();
+        try {
+            task.run();
+        } finally {
+            segment.detach();
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN == null ? 0 : THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Span of work on one thread, binds the timing to the thread and accounts for its allocations.
+     */
+    public static final class Segment {
+        private final ServerTiming timing;
+        private final Segment previous;
+        private final long allocatedAtStart;
+
+        private Segment(ServerTiming timing) {
+            this.timing = timing;
+            this.previous = CURRENT.get();
+            this.allocatedAtStart = allocatedBytes();
+            CURRENT.set(this);
+        }
+
+        /**
+         * A segment nested in another of the same timing doesn't count, the outer one covers its allocations.
+         */
+        private long allocated() {
+            if (previous != null && previous.timing == timing) {
+                return 0;
+            }
+            return allocatedBytes() - allocatedAtStart;
+        }
+
+        /**
+         * Adds the allocations of the segment to the timing and binds the previous segment of the thread again.
+         */
+        public void detach() {
+            timing.allocatedBytes.add(allocated());
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    private static final class Stage {
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+    }
+}
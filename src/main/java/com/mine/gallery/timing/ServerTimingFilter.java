@@ -0,0 +1,135 @@
+package com.mine.gallery.timing;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Servlet filter that times the request with a {@link ServerTiming} and returns the breakdown
+ * in the Server-Timing response header.
+ * <p>
+ * Only requests with the {@link ServerTiming#REQUEST_HEADER} are timed, and the breakdown is only
+ * returned to admins, as it tells apart cached and uncached paths. The filter runs before the
+ * security filters, so whether the caller is an admin is checked while the chain runs, when the
+ * response status or body is set.
+ * <p>
+ * The header is set right before the body is written, as large and streamed bodies commit the response
+ * early, and again once the filter chain returns if the response isn't committed by then.
+ * Async requests keep their timing in a request attribute, so the async dispatch continues it.
+ *
+ * @author TrusTio
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+    private static final String TIMING_ATTRIBUTE = ServerTiming.class.getName();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ServerTiming timing = (ServerTiming) request.getAttribute(TIMING_ATTRIBUTE);
+        if (timing == null) {
+            timing = new ServerTiming();
+            request.setAttribute(TIMING_ATTRIBUTE, timing);
+        }
+
+        TimingResponse timingResponse = response instanceof TimingResponse
+                ? (TimingResponse) response
+                : new TimingResponse(response, timing);
+
+        ServerTiming.Segment segment = timing.attach();
+        try {
+            filterChain.doFilter(request, timingResponse);
+        } finally {
+            segment.detach();
+        }
+
+        timingResponse.setTimingHeader();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(ServerTiming.REQUEST_HEADER) == null
+                && request.getAttribute(TIMING_ATTRIBUTE) == null;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Sets the Server-Timing header when the body is about to be written.
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+        private final ServerTiming timing;
+        private boolean admin;
+
+        private TimingResponse(HttpServletResponse response, ServerTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            checkAdmin();
+            super.setStatus(sc);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            setTimingHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            setTimingHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            setTimingHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            setTimingHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            setTimingHeader();
+            super.flushBuffer();
+        }
+
+        private void setTimingHeader() {
+            checkAdmin();
+            if (admin && !isCommitted()) {
+                setHeader(ServerTiming.HEADER, timing.toHeader());
+            }
+        }
+
+        // the security context is only set while the chain runs
+        private void checkAdmin() {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (!admin && authentication != null && authentication.isAuthenticated()) {
+                admin = authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .anyMatch("ROLE_ADMIN"::equals);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.mine.gallery.configuration;
+
+import com.mine.gallery.persistence.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the repositories, the caches and the connection pools are instrumented.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class MetricsConfigTest {
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void timesRepositoryCalls() {
+        userRepository.existsByUsername("metrics");
+
+        Timer timer = meterRegistry.find("gallery.repository.invocations")
+                .tags("repository", "UserRepository", "method", "existsByUsername", "exception", "none")
+                .timer();
+        assertNotNull(timer);
+        assertTrue(timer.count() > 0);
+    }
+
+    @Test
+    void registersCacheAndPoolMetrics() {
+        assertNotNull(meterRegistry.find("cache.gets").tag("cache", CacheConfig.USERS).meter());
+        assertNotNull(meterRegistry.find("gallery.security.token-cache.requests").meter());
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").meter());
+        assertNotNull(meterRegistry.find("gallery.image.save").tag("phase", "write").meter());
+    }
+}
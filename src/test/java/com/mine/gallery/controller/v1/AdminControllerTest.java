@@ -0,0 +1,63 @@
+package com.mine.gallery.controller.v1;
+
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.security.BoundedPasswordEncoder;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that {@link AdminController} rejects a password strength outside of the supported range
+ * with a 400, without changing the strength.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AdminControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestUser admin = TestUser.signUp(userService, userRepository, "admin");
+        token = mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + admin.getUsername() + "\",\"password\":\"" + TestUser.PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.AUTHORIZATION);
+    }
+
+    @Test
+    void rejectsPasswordStrengthsOutOfRange() throws Exception {
+        int strength = passwordEncoder.getStrength();
+
+        for (String invalid : new String[]{"3", "15", "31"}) {
+            mockMvc.perform(put("/api/v1/admin/password-strength")
+                    .header(HttpHeaders.AUTHORIZATION, token)
+                    .param("strength", invalid))
+                    .andExpect(status().isBadRequest());
+        }
+        assertEquals(strength, passwordEncoder.getStrength());
+    }
+}
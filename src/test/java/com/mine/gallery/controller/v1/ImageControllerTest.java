@@ -0,0 +1,87 @@
+package com.mine.gallery.controller.v1;
+
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.GalleryService;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.support.TestImages;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that the asynchronous upload of {@link ImageController} answers a malformed gallery id with a 400.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ImageControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GalleryService galleryService;
+
+    private Long userId;
+    private Long galleryId;
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestUser user = TestUser.signUp(userService, userRepository, "uploader");
+        userId = user.getId();
+        GalleryDTO gallery = new GalleryDTO().setName("uploads").setUserId(userId);
+        galleryId = galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO")).getId();
+
+        token = mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + user.getUsername() + "\",\"password\":\"" + TestUser.PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.AUTHORIZATION);
+    }
+
+    @Test
+    void answersMalformedGalleryIdsWithBadRequest() throws Exception {
+        mockMvc.perform(asyncDispatch(upload("not-a-number")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void uploadsToTheGallery() throws Exception {
+        mockMvc.perform(asyncDispatch(upload(String.valueOf(galleryId))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(delete("/api/v1/image/{userId}/{galleryId}/{imageName}", userId, galleryId, "uploaded.png")
+                .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNoContent());
+    }
+
+    private MvcResult upload(String galleryId) throws Exception {
+        MockMultipartFile image = TestImages.png("uploaded.png");
+        return mockMvc.perform(multipart("/api/v1/image")
+                .file(new MockMultipartFile("imageFile", image.getOriginalFilename(), image.getContentType(),
+                        image.getBytes()))
+                .param("galleryId", galleryId)
+                .header(HttpHeaders.AUTHORIZATION, token))
+                .andReturn();
+    }
+}
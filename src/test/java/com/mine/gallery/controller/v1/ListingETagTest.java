@@ -0,0 +1,157 @@
+package com.mine.gallery.controller.v1;
+
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.GalleryService;
+import com.mine.gallery.service.ListingVersions;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.service.dto.UserGalleriesDTO;
+import com.mine.gallery.support.TestUser;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that the listings of {@link UserController} answer an up to date If-None-Match with a 304
+ * without querying the listing, and hand out a new ETag once the galleries of the user change,
+ * also when they were changed on another instance.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ListingETagTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GalleryService galleryService;
+    @Autowired
+    private ListingVersions listingVersions;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestUser user = TestUser.signUp(userService, userRepository, "etagger");
+        userId = user.getId();
+        GalleryDTO gallery = new GalleryDTO().setName("tagged").setUserId(userId);
+        galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO"));
+
+        token = mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + user.getUsername() + "\",\"password\":\"" + TestUser.PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.AUTHORIZATION);
+    }
+
+    @Test
+    void answersUpToDateListingsWithNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/users/{userId}/galleries", userId)
+                .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(etag.startsWith("W/\""), etag);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/users/{userId}/galleries", userId)
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // only the version is read
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void answersUpToDateSearchesWithNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/users/{userId}/images/{imageName}", userId, "tagged")
+                .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/users/{userId}/images/{imageName}", userId, "tagged")
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // the search isn't cached, still only the version is read
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void changesTheETagWithTheListing() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/users/{userId}/galleries", userId)
+                .header(HttpHeaders.AUTHORIZATION, token))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Long galleryId = listGalleries().get(0).getId();
+        GalleryDTO renamed = new GalleryDTO().setName("retagged").setUserId(userId);
+        galleryService.rename(galleryId, renamed, new BeanPropertyBindingResult(renamed, "galleryDTO"));
+
+        String changed = mockMvc.perform(get("/api/v1/users/{userId}/galleries", userId)
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    void changesTheETagWithTheChangesOfOtherInstances() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/users/{userId}/galleries", userId)
+                .header(HttpHeaders.AUTHORIZATION, token))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(etag.startsWith("W/\"" + listingVersions.current(userId) + "-"), etag);
+
+        // as renamed by another instance
+        Long galleryId = listGalleries().get(0).getId();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("update galleries set name = 'elsewhere' where id = ?", galleryId);
+            listingVersions.changed(userId);
+        });
+
+        mockMvc.perform(get("/api/v1/users/{userId}/galleries", userId)
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("elsewhere"));
+    }
+
+    private List<UserGalleriesDTO> listGalleries() {
+        return galleryService.getUserGalleries(0, 20, "id", userId, listingVersions.current(userId)).getItems();
+    }
+}
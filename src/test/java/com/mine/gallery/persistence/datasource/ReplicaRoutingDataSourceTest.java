@@ -0,0 +1,104 @@
+package com.mine.gallery.persistence.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the {@link ReplicaRoutingDataSource} against two embedded databases,
+ * each one containing a single row with its own name.
+ *
+ * @author TrusTio
+ */
+class ReplicaRoutingDataSourceTest {
+    private static final Duration WINDOW = Duration.ofMillis(200);
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+    private Long currentUserId;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = embeddedDatabase("primary");
+        DataSource replica = embeddedDatabase("replica");
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, Collections.singletonList(replica),
+                new ReadYourWritesTracker(WINDOW), () -> currentUserId);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        routingDataSource.close();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica() {
+        currentUserId = 1L;
+
+        assertEquals("replica", readOnlyTransaction.execute(status -> nodeName()));
+    }
+
+    @Test
+    void writeTransactionGoesToPrimary() {
+        currentUserId = 1L;
+
+        assertEquals("primary", writeTransaction.execute(status -> nodeName()));
+    }
+
+    @Test
+    void readsOfTheWriterStayOnPrimaryWithinWindow() {
+        currentUserId = 1L;
+        writeTransaction.execute(status -> nodeName());
+
+        assertEquals("primary", readOnlyTransaction.execute(status -> nodeName()));
+
+        currentUserId = 2L;
+        assertEquals("replica", readOnlyTransaction.execute(status -> nodeName()));
+    }
+
+    @Test
+    void readsGoBackToReplicaAfterWindow() throws InterruptedException {
+        currentUserId = 1L;
+        writeTransaction.execute(status -> nodeName());
+
+        Thread.sleep(WINDOW.toMillis() * 2);
+
+        assertEquals("replica", readOnlyTransaction.execute(status -> nodeName()));
+    }
+
+    private String nodeName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource embeddedDatabase(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+
+        return dataSource;
+    }
+}
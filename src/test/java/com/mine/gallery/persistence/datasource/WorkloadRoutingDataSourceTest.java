@@ -0,0 +1,60 @@
+package com.mine.gallery.persistence.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the {@link WorkloadRoutingDataSource} against two embedded databases,
+ * each one containing a single row with its own name.
+ *
+ * @author TrusTio
+ */
+class WorkloadRoutingDataSourceTest {
+    private WorkloadRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        routingDataSource = new WorkloadRoutingDataSource(embeddedDatabase("api"), embeddedDatabase("images"));
+        jdbcTemplate = new JdbcTemplate(routingDataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        routingDataSource.close();
+    }
+
+    @Test
+    void apiWorkloadUsesApiPool() {
+        assertEquals("api", nodeName());
+    }
+
+    @Test
+    void imageWorkloadsUseImagePool() {
+        WorkloadContext.runAs(Workload.IMAGE_IO, () -> assertEquals("images", nodeName()));
+        WorkloadContext.runAs(Workload.IMAGE_PROCESSING, () -> assertEquals("images", nodeName()));
+
+        assertEquals("api", nodeName());
+    }
+
+    private String nodeName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private DataSource embeddedDatabase(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:workload-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        setup.execute("DELETE FROM node");
+        setup.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
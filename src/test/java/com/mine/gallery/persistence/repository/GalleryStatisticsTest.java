@@ -0,0 +1,127 @@
+package com.mine.gallery.persistence.repository;
+
+import com.mine.gallery.configuration.DataSourceConfig;
+import com.mine.gallery.configuration.ShardingConfig;
+import com.mine.gallery.persistence.entity.Gallery;
+import com.mine.gallery.persistence.entity.Image;
+import com.mine.gallery.persistence.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifies the incremental and bulk maintenance of the denormalized {@link Gallery} statistics.
+ *
+ * @author TrusTio
+ */
+@DataJpaTest
+@Import({DataSourceConfig.class, ShardingConfig.class})
+class GalleryStatisticsTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private GalleryRepository galleryRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+
+    private Gallery gallery;
+    private Image first;
+    private Image second;
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persist(new User()
+                .setUsername("counter")
+                .setEmail("counter@mail.com")
+                .setPassword("password"));
+        gallery = entityManager.persist(new Gallery()
+                .setName("counted")
+                .setUser(user));
+        first = entityManager.persist(image("first.jpg", 100));
+        second = entityManager.persist(image("second.jpg", 250));
+        entityManager.flush();
+    }
+
+    @Test
+    void incrementalUpdatesTrackCountBytesAndCover() {
+        galleryRepository.updateStatistics(gallery.getId(), 1, 100, LocalDateTime.now());
+        galleryRepository.setCoverImageIfMissing(gallery.getId(), first);
+        galleryRepository.updateStatistics(gallery.getId(), 1, 250, LocalDateTime.now());
+        galleryRepository.setCoverImageIfMissing(gallery.getId(), second);
+        galleryRepository.replaceCoverImage(gallery.getId(), first, second);
+        galleryRepository.updateStatistics(gallery.getId(), -1, -100, LocalDateTime.now());
+
+        Gallery reloaded = reload();
+        assertEquals(1, reloaded.getImageCount());
+        assertEquals(250, reloaded.getTotalBytes());
+        assertEquals(second.getId(), reloaded.getCoverImage().getId());
+    }
+
+    @Test
+    void recomputeStatisticsRepairsDrift() {
+        galleryRepository.updateStatistics(gallery.getId(), 7, 12345, LocalDateTime.now());
+
+        assertEquals(1, galleryRepository.recomputeStatistics(galleryRepository.findMinId(),
+                galleryRepository.findMaxId()));
+
+        Gallery reloaded = reload();
+        assertEquals(2, reloaded.getImageCount());
+        assertEquals(350, reloaded.getTotalBytes());
+        assertEquals(Math.max(first.getId(), second.getId()), reloaded.getCoverImage().getId());
+    }
+
+    @Test
+    void recomputeStatisticsClearsCoverOfEmptyGallery() {
+        galleryRepository.setCoverImageIfMissing(gallery.getId(), first);
+        galleryRepository.replaceCoverImage(gallery.getId(), first, null);
+        entityManager.getEntityManager().createQuery("delete from Images").executeUpdate();
+
+        galleryRepository.recomputeStatistics(gallery.getId(), gallery.getId());
+
+        Gallery reloaded = reload();
+        assertEquals(0, reloaded.getImageCount());
+        assertNull(reloaded.getCoverImage());
+    }
+
+    @Test
+    void bulkMoveReassignsCoverImages() {
+        Gallery target = entityManager.persist(new Gallery()
+                .setName("target")
+                .setUser(gallery.getUser()));
+        galleryRepository.setCoverImageIfMissing(gallery.getId(), first);
+        Set<Long> moved = Collections.singleton(first.getId());
+
+        galleryRepository.clearCoverImages(moved);
+        imageRepository.bulkMove(moved, target);
+        galleryRepository.assignMissingCoverImages(Arrays.asList(gallery.getId(), target.getId()));
+
+        entityManager.clear();
+        assertEquals(second.getId(), entityManager.find(Gallery.class, gallery.getId()).getCoverImage().getId());
+        Gallery reloadedTarget = entityManager.find(Gallery.class, target.getId());
+        assertEquals(first.getId(), reloadedTarget.getCoverImage().getId());
+    }
+
+    private Gallery reload() {
+        entityManager.clear();
+        return entityManager.find(Gallery.class, gallery.getId());
+    }
+
+    private Image image(String name, long size) {
+        return new Image()
+                .setName(name)
+                .setLocation("/0/" + gallery.getId() + "/" + name)
+                .setFileSize(size)
+                .setGallery(gallery);
+    }
+}
@@ -0,0 +1,95 @@
+package com.mine.gallery.persistence.repository;
+
+import com.mine.gallery.configuration.DataSourceConfig;
+import com.mine.gallery.configuration.ShardingConfig;
+import com.mine.gallery.persistence.entity.Gallery;
+import com.mine.gallery.persistence.entity.Image;
+import com.mine.gallery.persistence.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that bulk writes on {@link Image} rows are sent as JDBC batches
+ * instead of one round trip per row.
+ *
+ * @author TrusTio
+ */
+@DataJpaTest
+@Import({DataSourceConfig.class, ShardingConfig.class})
+class ImageRepositoryBatchingTest {
+    private static final int IMAGE_COUNT = 120;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private GalleryRepository galleryRepository;
+
+    private Statistics statistics;
+    private Gallery gallery;
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persist(new User()
+                .setUsername("batcher")
+                .setEmail("batcher@mail.com")
+                .setPassword("password"));
+        gallery = entityManager.persist(new Gallery()
+                .setName("batched")
+                .setUser(user));
+        entityManager.flush();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveAllInsertsImagesInBatches() {
+        imageRepository.saveAll(images(IMAGE_COUNT));
+        entityManager.flush();
+
+        assertEquals(IMAGE_COUNT, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < IMAGE_COUNT / 5,
+                "Expected batched inserts, got " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    @Test
+    void deletingGalleryDeletesImagesInBatches() {
+        List<Image> images = imageRepository.saveAll(images(IMAGE_COUNT));
+        gallery.setImages(images);
+        entityManager.flush();
+        statistics.clear();
+
+        galleryRepository.delete(gallery);
+        entityManager.flush();
+
+        assertEquals(IMAGE_COUNT + 1, statistics.getEntityDeleteCount());
+        assertTrue(statistics.getPrepareStatementCount() < IMAGE_COUNT / 5,
+                "Expected batched deletes, got " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    private List<Image> images(int count) {
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            images.add(new Image()
+                    .setName("image-" + i + ".jpg")
+                    .setLocation("/0/" + gallery.getId() + "/image-" + i + ".jpg")
+                    .setGallery(gallery));
+        }
+        return images;
+    }
+}
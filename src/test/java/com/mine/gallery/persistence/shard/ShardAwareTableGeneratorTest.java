@@ -0,0 +1,96 @@
+package com.mine.gallery.persistence.shard;
+
+import com.mine.gallery.configuration.GalleryDataSourceProperties;
+import com.mine.gallery.persistence.datasource.Workload;
+import com.mine.gallery.persistence.datasource.WorkloadContext;
+import com.mine.gallery.persistence.entity.ChangeLogEntry;
+import com.mine.gallery.persistence.entity.ChangeType;
+import com.mine.gallery.persistence.repository.ChangeLogRepository;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Verifies that an image worker can fetch a new id block while the rest of the image pool is taken.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class ShardAwareTableGeneratorTest {
+    private static final int INCREMENT_SIZE = 50;
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private GalleryDataSourceProperties galleryDataSourceProperties;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void imageWorkerFetchesIdBlocksWhileTheImagePoolIsTaken() throws SQLException {
+        Long userId = TestUser.signUp(userService, userRepository, "generated").getId();
+
+        // like the other image workers, which wait for a block of their own
+        List<Connection> taken = new ArrayList<>();
+        try {
+            for (int i = 1; i < galleryDataSourceProperties.getImageConnections(); i++) {
+                taken.add(WorkloadContext.callAs(Workload.IMAGE_IO, this::takeConnection));
+            }
+
+            int saved = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> WorkloadContext.callAs(Workload.IMAGE_IO,
+                    () -> new TransactionTemplate(transactionManager).execute(status -> {
+                        // the transaction holds the last image connection before the first block is fetched
+                        changeLogRepository.count();
+
+                        List<ChangeLogEntry> entries = new ArrayList<>();
+                        for (int seq = 1; seq <= 2 * INCREMENT_SIZE + 1; seq++) {
+                            entries.add(new ChangeLogEntry().setUserId(userId).setSeq(seq)
+                                    .setType(ChangeType.GALLERY_CREATED).setCreatedAt(LocalDateTime.now()));
+                        }
+                        return changeLogRepository.saveAll(entries).size();
+                    })));
+
+            assertEquals(2 * INCREMENT_SIZE + 1, saved);
+        } finally {
+            for (Connection connection : taken) {
+                connection.close();
+            }
+        }
+    }
+
+    private Connection takeConnection() {
+        try {
+            Connection connection = dataSource.getConnection();
+            // the lazy proxy only fetches the connection from the pool for the first statement
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+            return connection;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
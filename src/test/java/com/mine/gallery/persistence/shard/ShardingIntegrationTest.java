@@ -0,0 +1,102 @@
+package com.mine.gallery.persistence.shard;
+
+import com.mine.gallery.exception.user.SignUpValidationException;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.service.dto.SignupUserDTO;
+import com.mine.gallery.service.dto.UserDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the user services against three embedded H2 shards.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "gallery.datasource.shards[0].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "gallery.datasource.shards[0].username=sa",
+        "gallery.datasource.shards[1].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "gallery.datasource.shards[1].username=sa"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardingIntegrationTest {
+    private static final List<String> USERNAMES = Arrays.asList("alice", "bob", "carol", "dave", "erin", "frank");
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ShardMap shardMap;
+
+    @BeforeAll
+    void signUpUsers() {
+        USERNAMES.forEach(username -> signUp(username, username + "@mail.com"));
+    }
+
+    @Test
+    void usersAreStoredOnTheShardOfTheirUsername() {
+        for (int shard = 0; shard < 3; shard++) {
+            List<String> usernames = shard(shard).queryForList("SELECT username FROM users", String.class);
+            List<Long> ids = shard(shard).queryForList("SELECT id FROM users", Long.class);
+
+            assertFalse(usernames.isEmpty(), "Shard " + shard + " should hold some of the users");
+            for (String username : usernames) {
+                assertEquals(shard, shardMap.shardFor(username));
+            }
+            for (Long id : ids) {
+                assertEquals(shard, shardMap.shardFor(id));
+            }
+        }
+    }
+
+    @Test
+    void getAllUsersGathersTheUsersOfEveryShard() {
+        List<String> firstPage = userService.getAllUsers(0, 4, "username").stream()
+                .map(UserDTO::getUsername)
+                .collect(Collectors.toList());
+        List<String> secondPage = userService.getAllUsers(1, 4, "username").stream()
+                .map(UserDTO::getUsername)
+                .collect(Collectors.toList());
+
+        assertEquals(USERNAMES.subList(0, 4), firstPage);
+        assertEquals(USERNAMES.subList(4, 6), secondPage);
+    }
+
+    @Test
+    void getUserByIdIsRoutedByTheUserId() {
+        for (UserDTO user : userService.getAllUsers(0, 10, "id")) {
+            assertEquals(user.getUsername(), userService.getUserById(user.getId()).getUsername());
+        }
+    }
+
+    @Test
+    void emailsAreUniqueAcrossShards() {
+        assertTrue(shardMap.shardFor("grace") != shardMap.shardFor("alice"));
+
+        assertThrows(SignUpValidationException.class, () -> signUp("grace", "alice@mail.com"));
+    }
+
+    private void signUp(String username, String email) {
+        SignupUserDTO user = new SignupUserDTO(username, email, "Password1!");
+        userService.signUp(user, new BeanPropertyBindingResult(user, "signupUserDTO"));
+    }
+
+    private static JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:shard" + shard, "sa", ""));
+    }
+}
@@ -0,0 +1,65 @@
+package com.mine.gallery.persistence.storage;
+
+import com.mine.gallery.configuration.GalleryStorageFaultProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the faults are injected into the configured operations only.
+ *
+ * @author TrusTio
+ */
+class FaultInjectingFileStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void delaysTheOperations() throws IOException {
+        GalleryStorageFaultProperties properties = new GalleryStorageFaultProperties();
+        properties.getRead().setLatency(Duration.ofMillis(50));
+        properties.getRead().setJitter(Duration.ofMillis(20));
+        FileStore fileStore = new FaultInjectingFileStore(new LocalFileStore(), properties);
+        Path file = directory.resolve("images/image.jpg");
+
+        long start = System.nanoTime();
+        fileStore.write(file, new byte[]{1, 2, 3});
+        long write = System.nanoTime() - start;
+        start = System.nanoTime();
+        try (InputStream content = fileStore.read(file)) {
+            assertArrayEquals(new byte[]{1, 2, 3}, StreamUtils.copyToByteArray(content));
+        }
+        long read = System.nanoTime() - start;
+
+        assertTrue(read >= Duration.ofMillis(50).toNanos());
+        assertTrue(write < Duration.ofMillis(50).toNanos());
+    }
+
+    @Test
+    void failsBeforeReachingTheFiles() throws IOException {
+        GalleryStorageFaultProperties properties = new GalleryStorageFaultProperties();
+        properties.getDelete().setErrorRate(1);
+        FileStore fileStore = new FaultInjectingFileStore(new LocalFileStore(), properties);
+        Path file = directory.resolve("image.jpg");
+        fileStore.write(file, new byte[]{1});
+
+        assertThrows(IOException.class, () -> fileStore.delete(file));
+        assertThrows(IOException.class, () -> fileStore.deleteIfExists(file));
+        assertTrue(Files.exists(file));
+
+        properties.getDelete().setErrorRate(0);
+        fileStore.delete(file);
+        assertFalse(Files.exists(file));
+    }
+}
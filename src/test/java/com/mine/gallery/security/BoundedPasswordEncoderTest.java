@@ -0,0 +1,48 @@
+package com.mine.gallery.security;
+
+import com.mine.gallery.exception.user.LoginThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the runtime strength changes and the throttling of the {@link BoundedPasswordEncoder}.
+ *
+ * @author TrusTio
+ */
+class BoundedPasswordEncoderTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    void weakerHashesNeedUpgradeAfterStrengthIncrease() {
+        encoder = new BoundedPasswordEncoder(4, 1, 4, 5_000, meterRegistry);
+        String hash = encoder.encode("password");
+        assertFalse(encoder.upgradeEncoding(hash));
+
+        encoder.setStrength(5);
+
+        assertTrue(encoder.matches("password", hash));
+        assertTrue(encoder.upgradeEncoding(hash));
+        assertEquals(2, meterRegistry.get("gallery.password.hash").timers().stream()
+                .mapToLong(timer -> timer.count()).sum());
+    }
+
+    @Test
+    void rejectsHashesThatWaitTooLong() {
+        encoder = new BoundedPasswordEncoder(14, 1, 4, 1, meterRegistry);
+
+        assertThrows(LoginThrottledException.class, () -> encoder.encode("password"));
+        assertEquals(1, meterRegistry.get("gallery.password.rejected").counter().count());
+    }
+}
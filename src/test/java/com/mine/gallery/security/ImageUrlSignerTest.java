@@ -0,0 +1,65 @@
+package com.mine.gallery.security;
+
+import com.mine.gallery.exception.generic.InvalidSignatureException;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifies that the urls signed by {@link ImageUrlSigner} are stable and can't be tampered with.
+ *
+ * @author TrusTio
+ */
+class ImageUrlSignerTest {
+    private static final String LOCATION = "/1/6f1e0c1a-2d7e-4f4e-9a59-3f2b8c1d0e5a.jpg";
+
+    private final ImageUrlSigner signer = new ImageUrlSigner("test-key", "http://localhost:8080",
+            Duration.ofHours(1), Duration.ofMinutes(15));
+
+    @Test
+    void verifiesSignedUrl() {
+        UriComponents url = parse(signer.sign(LOCATION, ImageUrlSigner.THUMBNAIL));
+
+        assertEquals(LOCATION, verify(ImageUrlSigner.THUMBNAIL, url));
+        assertEquals(signer.sign(LOCATION, ImageUrlSigner.THUMBNAIL), url.toUriString());
+    }
+
+    @Test
+    void rejectsTamperedUrl() {
+        UriComponents url = parse(signer.sign(LOCATION, ImageUrlSigner.THUMBNAIL));
+        String key = url.getPathSegments().get(4);
+        long expires = Long.parseLong(url.getQueryParams().getFirst("expires"));
+        String signature = url.getQueryParams().getFirst("signature");
+
+        assertThrows(InvalidSignatureException.class, () -> verify(ImageUrlSigner.ORIGINAL, url));
+        assertThrows(InvalidSignatureException.class,
+                () -> signer.verify(ImageUrlSigner.THUMBNAIL, key, expires + 900, signature));
+        assertThrows(InvalidSignatureException.class,
+                () -> new ImageUrlSigner("other-key", "http://localhost:8080", Duration.ofHours(1),
+                        Duration.ofMinutes(15)).verify(ImageUrlSigner.THUMBNAIL, key, expires, signature));
+    }
+
+    @Test
+    void rejectsExpiredUrl() {
+        ImageUrlSigner expired = new ImageUrlSigner("test-key", "http://localhost:8080",
+                Duration.ofHours(-2), Duration.ofMinutes(15));
+        UriComponents url = parse(expired.sign(LOCATION, ImageUrlSigner.ORIGINAL));
+
+        assertThrows(InvalidSignatureException.class, () -> verify(ImageUrlSigner.ORIGINAL, url));
+    }
+
+    private UriComponents parse(String url) {
+        return UriComponentsBuilder.fromUriString(url).build();
+    }
+
+    private String verify(String variant, UriComponents url) {
+        return signer.verify(variant, url.getPathSegments().get(4),
+                Long.parseLong(url.getQueryParams().getFirst("expires")),
+                url.getQueryParams().getFirst("signature"));
+    }
+}
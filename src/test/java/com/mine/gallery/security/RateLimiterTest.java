@@ -0,0 +1,47 @@
+package com.mine.gallery.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the token bucket behaviour and the memory bound of the {@link RateLimiter}.
+ *
+ * @author TrusTio
+ */
+class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        RateLimiter limiter = new RateLimiter(2, 3, 10);
+        long now = System.nanoTime();
+
+        assertEquals(2, limiter.tryAcquire("client", now).getRemaining());
+        assertEquals(1, limiter.tryAcquire("client", now).getRemaining());
+        assertEquals(0, limiter.tryAcquire("client", now).getRemaining());
+
+        RateLimiter.Decision rejected = limiter.tryAcquire("client", now);
+        assertFalse(rejected.isAllowed());
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        assertEquals(2, rejected.getResetSeconds());
+
+        assertTrue(limiter.tryAcquire("client", now + SECOND / 2).isAllowed());
+        assertTrue(limiter.tryAcquire("other", now).isAllowed());
+    }
+
+    @Test
+    void dropsRefilledBucketsWhenFull() {
+        RateLimiter limiter = new RateLimiter(10, 1, 2);
+        long now = System.nanoTime();
+        limiter.tryAcquire("first", now);
+        limiter.tryAcquire("second", now);
+
+        assertTrue(limiter.tryAcquire("third", now + 2 * SECOND).isAllowed());
+        assertEquals(1, limiter.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.mine.gallery.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Verifies the expiry and the bound of the {@link TokenAuthenticationCache}, and that the
+ * lookups of the filters ahead of the authorization are not counted.
+ *
+ * @author TrusTio
+ */
+class TokenAuthenticationCacheTest {
+    private final IdUsernamePasswordAuthenticationToken authentication =
+            new IdUsernamePasswordAuthenticationToken(1L, "cached", 1L, Collections.emptyList());
+
+    @Test
+    void returnsCachedAuthenticationForSameTokenWithOrWithoutPrefixSpace() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(10);
+        cache.put(" header.payload.signature", authentication, inMinutes(5));
+
+        assertSame(authentication, cache.get("header.payload.signature"));
+        assertNull(cache.get("header.payload.other"));
+    }
+
+    @Test
+    void dropsExpiredTokens() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(10);
+        cache.put("expired", authentication, inMinutes(-1));
+
+        assertNull(cache.get("expired"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void staysBoundedWhenFull() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(2);
+        cache.put("first", authentication, inMinutes(-1));
+        cache.put("second", authentication, inMinutes(5));
+        cache.put("third", authentication, inMinutes(5));
+        cache.put("fourth", authentication, inMinutes(5));
+
+        assertEquals(2, cache.size());
+        assertSame(authentication, cache.get("third"));
+        assertNull(cache.get("fourth"));
+    }
+
+    @Test
+    void peekingDoesNotCountTheLookup() {
+        TokenAuthenticationCache cache = new TokenAuthenticationCache(10);
+        cache.put("peeked", authentication, inMinutes(5));
+
+        assertSame(authentication, cache.peek(TokenDigest.of("peeked")));
+        assertNull(cache.peek(TokenDigest.of("missing")));
+        assertEquals(0, cache.hitCount());
+        assertEquals(0, cache.missCount());
+    }
+
+    @Test
+    void digestsTheTokenOfARequestOnce() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ByteBuffer digest = TokenDigest.of(request, "Bearer header.payload.signature");
+
+        assertSame(digest, TokenDigest.of(request, "Bearer header.payload.signature"));
+        assertEquals(TokenDigest.of("header.payload.signature"), digest);
+    }
+
+    private Date inMinutes(int minutes) {
+        return new Date(System.currentTimeMillis() + minutes * 60_000L);
+    }
+}
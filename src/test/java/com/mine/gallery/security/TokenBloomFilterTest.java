@@ -0,0 +1,49 @@
+package com.mine.gallery.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the {@link TokenBloomFilter} has no false negatives and keeps
+ * the false positive rate it was sized for.
+ *
+ * @author TrusTio
+ */
+class TokenBloomFilterTest {
+    private static final int TOKENS = 10_000;
+
+    @Test
+    void containsEveryAddedToken() {
+        TokenBloomFilter filter = new TokenBloomFilter(TOKENS, 0.01);
+        for (int i = 0; i < TOKENS; i++) {
+            filter.put(digest("revoked-" + i));
+        }
+
+        for (int i = 0; i < TOKENS; i++) {
+            assertTrue(filter.mightContain(digest("revoked-" + i)));
+        }
+    }
+
+    @Test
+    void keepsFalsePositiveRate() {
+        TokenBloomFilter filter = new TokenBloomFilter(TOKENS, 0.01);
+        for (int i = 0; i < TOKENS; i++) {
+            filter.put(digest("revoked-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < TOKENS * 10; i++) {
+            if (filter.mightContain(digest("valid-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < TOKENS * 10 * 0.02, "Too many false positives: " + falsePositives);
+    }
+
+    private ByteBuffer digest(String token) {
+        return TokenDigest.of(token);
+    }
+}
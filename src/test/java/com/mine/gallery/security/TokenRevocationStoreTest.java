@@ -0,0 +1,103 @@
+package com.mine.gallery.security;
+
+import com.mine.gallery.persistence.entity.RevokedToken;
+import com.mine.gallery.persistence.repository.RevokedTokenRepository;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.persistence.shard.ShardTemplate;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that a token revoked on logout is rejected by the {@link AuthorizationFilter}, that a revocation
+ * is kept until its token expires, and that the revocations of other instances are picked up by the sync.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenRevocationStoreTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    @Autowired
+    private ShardTemplate shardTemplate;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void rejectsTheTokenAfterLogout() throws Exception {
+        TestUser user = TestUser.signUp(userService, userRepository, "loggedout");
+        String token = mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + user.getUsername() + "\",\"password\":\"" + TestUser.PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.AUTHORIZATION);
+
+        mockMvc.perform(get("/api/v1/users/me").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/logout").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/users/me").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isForbidden());
+        assertTrue(shardTemplate.executeOn(0, () ->
+                revokedTokenRepository.existsByDigest(TokenDigest.of(token.replace("Bearer", "")).array())));
+    }
+
+    @Test
+    void purgeKeepsTheRevocationsOfUnexpiredTokens() {
+        String token = randomToken();
+        tokenRevocationStore.revoke(token, new Date(System.currentTimeMillis() + 60_000));
+        byte[] expired = TokenDigest.of(randomToken()).array();
+        shardTemplate.executeOn(0, () -> revokedTokenRepository.save(new RevokedToken()
+                .setDigest(expired)
+                .setRevokedAt(LocalDateTime.now().minusMinutes(2))
+                .setExpiresAt(LocalDateTime.now().minusMinutes(1))));
+
+        tokenRevocationStore.purgeExpired();
+
+        assertTrue(tokenRevocationStore.isRevoked(token));
+        assertTrue(shardTemplate.executeOn(0, () -> revokedTokenRepository.existsByDigest(TokenDigest.of(token).array())));
+        assertFalse(shardTemplate.executeOn(0, () -> revokedTokenRepository.existsByDigest(expired)));
+    }
+
+    @Test
+    void syncPicksUpTheRevocationsOfOtherInstances() {
+        String token = randomToken();
+        // as revoked by another instance, straight in the database
+        shardTemplate.executeOn(0, () -> revokedTokenRepository.save(new RevokedToken()
+                .setDigest(TokenDigest.of(token).array())
+                .setRevokedAt(LocalDateTime.now())
+                .setExpiresAt(LocalDateTime.now().plusMinutes(1))));
+
+        tokenRevocationStore.sync();
+
+        assertTrue(tokenRevocationStore.isRevoked(token));
+    }
+
+    private static String randomToken() {
+        return "header." + UUID.randomUUID() + ".signature";
+    }
+}
@@ -0,0 +1,99 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.exception.change.ChangesCompactedException;
+import com.mine.gallery.persistence.entity.ChangeType;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.dto.ChangeDTO;
+import com.mine.gallery.service.dto.ChangesDTO;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.service.dto.UserGalleriesDTO;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the changes of a user are numbered in order and paged from a sequence number,
+ * and that a client asking for compacted changes is told to list everything again.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class ChangeFeedTest {
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private GalleryService galleryService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = TestUser.signUp(userService, userRepository, "syncer").getId();
+    }
+
+    @Test
+    void pagesTheChangesInOrder() {
+        long since = changeFeedService.getChanges(userId, null, 10).getNext();
+
+        UserGalleriesDTO gallery = create("synced");
+        GalleryDTO renamed = new GalleryDTO().setName("resynced").setUserId(userId);
+        galleryService.rename(gallery.getId(), renamed, new BeanPropertyBindingResult(renamed, "galleryDTO"));
+
+        ChangesDTO first = changeFeedService.getChanges(userId, since, 1);
+        assertTrue(first.isMore());
+        ChangesDTO second = changeFeedService.getChanges(userId, first.getNext(), 10);
+        assertFalse(second.isMore());
+
+        List<ChangeDTO> changes = changeFeedService.getChanges(userId, since, 10).getChanges();
+        assertEquals(2, changes.size());
+        assertEquals(since + 1, changes.get(0).getSeq());
+        assertEquals(since + 2, changes.get(1).getSeq());
+        assertEquals(ChangeType.GALLERY_CREATED, changes.get(0).getType());
+        assertEquals(ChangeType.GALLERY_RENAMED, changes.get(1).getType());
+        assertEquals(renamed.getName(), changes.get(1).getName());
+        assertEquals(second.getNext(), since + 2);
+    }
+
+    @Test
+    void answersCompactedChangesWithGone() {
+        long since = changeFeedService.getChanges(userId, null, 10).getNext();
+        create("compacted");
+
+        ChangeFeedService target = AopTestUtils.getTargetObject(changeFeedService);
+        Duration retention = (Duration) ReflectionTestUtils.getField(target, "retention");
+        ReflectionTestUtils.setField(target, "retention", Duration.ofSeconds(-1));
+        try {
+            assertTrue(changeFeedService.compactAll() > 0);
+        } finally {
+            ReflectionTestUtils.setField(target, "retention", retention);
+        }
+
+        assertThrows(ChangesCompactedException.class, () -> changeFeedService.getChanges(userId, since, 10));
+
+        long current = changeFeedService.getChanges(userId, null, 10).getNext();
+        assertEquals(since + 1, current);
+        assertEquals(0, changeFeedService.getChanges(userId, current, 10).getChanges().size());
+    }
+
+    private UserGalleriesDTO create(String name) {
+        GalleryDTO gallery = new GalleryDTO().setName(name).setUserId(userId);
+        return galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.persistence.entity.Gallery;
+import com.mine.gallery.persistence.repository.GalleryRepository;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.support.TestImages;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that renaming a gallery keeps the statistics written by an upload that committed
+ * after the rename loaded the gallery, and that it moves the last update time of the gallery.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class GalleryServiceTest {
+    @Autowired
+    private GalleryService galleryService;
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GalleryRepository galleryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void renameKeepsTheStatisticsOfAConcurrentUpload() {
+        Long userId = TestUser.signUp(userService, userRepository, "renamer").getId();
+        GalleryDTO created = new GalleryDTO().setName("before").setUserId(userId);
+        Long galleryId = galleryService.create(created, new BeanPropertyBindingResult(created, "galleryDTO")).getId();
+        MockMultipartFile image = TestImages.png("raced.png");
+
+        TransactionTemplate upload = new TransactionTemplate(transactionManager);
+        upload.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        GalleryDTO renamed = new GalleryDTO().setName("after").setUserId(userId);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // the rename works on the gallery as it was loaded, before the upload committed
+            galleryRepository.findByIdAndUserId(galleryId, userId).get();
+            upload.executeWithoutResult(inner -> imageService.save(image, galleryId, userId));
+            galleryService.rename(galleryId, renamed, new BeanPropertyBindingResult(renamed, "galleryDTO"));
+        });
+
+        Gallery gallery = galleryRepository.findByIdAndUserId(galleryId, userId).get();
+        assertEquals("after", gallery.getName());
+        assertEquals(1, gallery.getImageCount());
+        assertEquals(image.getSize(), gallery.getTotalBytes());
+        assertNotNull(gallery.getCoverImage());
+        assertNotNull(gallery.getLastUpdated());
+
+        imageService.deleteImage(userId, galleryId, "raced.png");
+    }
+
+    @Test
+    void renameMovesTheLastUpdateTime() throws InterruptedException {
+        Long userId = TestUser.signUp(userService, userRepository, "retitled").getId();
+        GalleryDTO created = new GalleryDTO().setName("before").setUserId(userId);
+        Long galleryId = galleryService.create(created, new BeanPropertyBindingResult(created, "galleryDTO")).getId();
+        LocalDateTime createdAt = galleryRepository.findByIdAndUserId(galleryId, userId).get().getLastUpdated();
+
+        Thread.sleep(10);
+        GalleryDTO renamed = new GalleryDTO().setName("after").setUserId(userId);
+        galleryService.rename(galleryId, renamed, new BeanPropertyBindingResult(renamed, "galleryDTO"));
+
+        assertTrue(galleryRepository.findByIdAndUserId(galleryId, userId).get().getLastUpdated().isAfter(createdAt));
+    }
+}
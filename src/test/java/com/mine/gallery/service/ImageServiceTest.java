@@ -0,0 +1,111 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.configuration.BulkheadConfig;
+import com.mine.gallery.persistence.repository.ImageRepository;
+import com.mine.gallery.persistence.repository.ImageStorageRepository;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.support.TestImages;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the file of a deleted image is only removed once the delete is committed, and that
+ * a bulk delete is refused before deleting anything while the file deletes can't keep up.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class ImageServiceTest {
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private GalleryService galleryService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private ImageStorageRepository imageStorageRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier(BulkheadConfig.STORAGE_IO_EXECUTOR)
+    private ThreadPoolTaskExecutor storageIoExecutor;
+
+    @Test
+    void deleteRemovesTheFileOnlyOnCommit() {
+        Long userId = TestUser.signUp(userService, userRepository, "deleter").getId();
+        GalleryDTO gallery = new GalleryDTO().setName("deleted").setUserId(userId);
+        Long galleryId = galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO")).getId();
+        Long imageId = imageService.save(TestImages.png("kept.png"), galleryId, userId);
+        String location = imageRepository.findById(imageId).get().getLocation();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            imageService.deleteImage(userId, galleryId, "kept.png");
+            status.setRollbackOnly();
+        });
+        assertTrue(imageStorageRepository.findInFileSystem(location).exists());
+
+        imageService.deleteImage(userId, galleryId, "kept.png");
+        assertFalse(imageStorageRepository.findInFileSystem(location).exists());
+    }
+
+    @Test
+    void bulkDeleteIsRefusedWhileTheStorageExecutorIsSaturated() throws InterruptedException {
+        Long userId = TestUser.signUp(userService, userRepository, "saturated").getId();
+        GalleryDTO gallery = new GalleryDTO().setName("saturated").setUserId(userId);
+        Long galleryId = galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO")).getId();
+        Long imageId = imageService.save(TestImages.png("refused.png"), galleryId, userId);
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // until every thread is blocked and the queue is full
+            ThreadPoolExecutor executor = storageIoExecutor.getThreadPoolExecutor();
+            while (executor.getActiveCount() < executor.getMaximumPoolSize()
+                    || executor.getQueue().remainingCapacity() > 0) {
+                try {
+                    storageIoExecutor.execute(() -> {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                } catch (TaskRejectedException e) {
+                    Thread.sleep(10);
+                }
+            }
+
+            assertThrows(TaskRejectedException.class,
+                    () -> imageService.deleteImages(userId, Collections.singletonList(imageId)));
+            assertTrue(imageRepository.findById(imageId).isPresent());
+        } finally {
+            release.countDown();
+        }
+
+        while (storageIoExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, imageService.deleteImages(userId, Collections.singletonList(imageId)));
+    }
+}
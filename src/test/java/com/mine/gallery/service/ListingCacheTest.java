@@ -0,0 +1,115 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.service.dto.UserGalleriesDTO;
+import com.mine.gallery.support.TestUser;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the gallery listings are served from the cache until the galleries of the user change,
+ * also on another instance, and that a change moves the version of the listings only once it's committed.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class ListingCacheTest {
+    @Autowired
+    private GalleryService galleryService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ListingVersions listingVersions;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = TestUser.signUp(userService, userRepository, "lister").getId();
+        GalleryDTO gallery = new GalleryDTO().setName("listed").setUserId(userId);
+        galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO"));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void servesRepeatedListingsFromTheCache() {
+        long version = listingVersions.current(userId);
+        galleryService.getUserGalleries(0, 20, "id", userId, version);
+        statistics.clear();
+
+        assertEquals(1, galleryService.getUserGalleries(0, 20, "id", userId, version).getItems().size());
+
+        // the version was read by the caller
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void listsTheChangesRightAway() {
+        List<UserGalleriesDTO> galleries = listGalleries();
+
+        GalleryDTO renamed = new GalleryDTO().setName("renamed").setUserId(userId);
+        galleryService.rename(galleries.get(0).getId(), renamed, new BeanPropertyBindingResult(renamed, "galleryDTO"));
+
+        assertEquals(renamed.getName(), listGalleries().get(0).getName());
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+    }
+
+    @Test
+    void listsTheChangesOfOtherInstances() {
+        Long galleryId = listGalleries().get(0).getId();
+
+        // as renamed by another instance, which has a cache of its own
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("update galleries set name = 'elsewhere' where id = ?", galleryId);
+            listingVersions.changed(userId);
+        });
+
+        assertEquals("elsewhere", listGalleries().get(0).getName());
+    }
+
+    @Test
+    void movesTheVersionAfterCommit() {
+        long before = listingVersions.current(userId);
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            listingVersions.changed(userId);
+            assertEquals(before, (long) concurrent.execute(inner -> listingVersions.current(userId)));
+        });
+
+        assertNotEquals(before, listingVersions.current(userId));
+    }
+
+    private List<UserGalleriesDTO> listGalleries() {
+        return galleryService.getUserGalleries(0, 20, "id", userId, listingVersions.current(userId)).getItems();
+    }
+}
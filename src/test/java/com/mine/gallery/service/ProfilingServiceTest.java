@@ -0,0 +1,70 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.exception.profiling.ProfilingException;
+import com.mine.gallery.service.dto.RecordingDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the on-demand flight recordings are bounded and written to the recordings directory.
+ *
+ * @author TrusTio
+ */
+class ProfilingServiceTest {
+    @TempDir
+    Path directory;
+
+    private ProfilingService profilingService;
+
+    @AfterEach
+    void tearDown() {
+        profilingService.shutdown();
+    }
+
+    @Test
+    void writesStoppedRecording() {
+        profilingService = service(1);
+
+        RecordingDTO recording = profilingService.start("default", Duration.ofMinutes(1));
+        assertThrows(ProfilingException.class, () -> profilingService.getRecordingFile(recording.getId()));
+        assertThrows(ProfilingException.class, () -> profilingService.start("default", Duration.ofSeconds(1)));
+
+        profilingService.stop(recording.getId());
+
+        assertTrue(profilingService.getRecordingFile(recording.getId()).exists());
+    }
+
+    @Test
+    void rejectsUnboundedRecordings() {
+        profilingService = service(1);
+
+        assertThrows(ProfilingException.class, () -> profilingService.start("default", Duration.ofHours(1)));
+        assertThrows(ProfilingException.class, () -> profilingService.start("unknown", Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void keepsLatestRecordings() {
+        profilingService = service(2);
+
+        for (int i = 0; i < 3; i++) {
+            profilingService.stop(profilingService.start("default", Duration.ofSeconds(1)).getId());
+        }
+
+        assertEquals(2, profilingService.getRecordings().size());
+        assertEquals(2, directory.toFile().list().length);
+    }
+
+    private ProfilingService service(int maxRecordings) {
+        return new ProfilingService(directory.toString(), Duration.ofMinutes(5), maxRecordings,
+                false, Duration.ofHours(1), DataSize.ofMegabytes(250));
+    }
+}
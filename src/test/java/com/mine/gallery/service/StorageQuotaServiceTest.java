@@ -0,0 +1,198 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.exception.storage.StorageQuotaExceededException;
+import com.mine.gallery.persistence.entity.User;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.support.TestImages;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the storage quota holds for concurrent uploads, that saving a user keeps the usage
+ * written by an upload that committed after the user was loaded, that a flush picks up the uploads
+ * of other instances, and that the repair counts images that were never counted.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class StorageQuotaServiceTest {
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private GalleryService galleryService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+    private Long galleryId;
+
+    @BeforeEach
+    void setUp() {
+        userId = TestUser.signUp(userService, userRepository, "quoted").getId();
+        GalleryDTO gallery = new GalleryDTO().setName("quoted").setUserId(userId);
+        galleryId = galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO")).getId();
+    }
+
+    @Test
+    void concurrentReservationsStayWithinTheQuota() throws Exception {
+        StorageQuotaService target = AopTestUtils.getTargetObject(storageQuotaService);
+        long quotaObjects = (long) ReflectionTestUtils.getField(target, "quotaObjects");
+        ReflectionTestUtils.setField(target, "quotaObjects", 3L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            List<Future<Boolean>> reservations = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reservations.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        transaction.executeWithoutResult(status -> storageQuotaService.reserve(userId, 10));
+                        return true;
+                    } catch (StorageQuotaExceededException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Boolean> reservation : reservations) {
+                reserved += reservation.get() ? 1 : 0;
+            }
+            assertTrue(reserved <= 3);
+            // reservations racing at the limit may all back off, the rest of the quota is still free
+            while (reserved < 3) {
+                transaction.executeWithoutResult(status -> storageQuotaService.reserve(userId, 10));
+                reserved++;
+            }
+            assertThrows(StorageQuotaExceededException.class, () -> transaction.executeWithoutResult(
+                    status -> storageQuotaService.reserve(userId, 10)));
+
+            storageQuotaService.flush();
+            assertEquals(3, usage().getStorageObjects());
+            assertEquals(30, usage().getStorageBytes());
+        } finally {
+            executor.shutdownNow();
+            ReflectionTestUtils.setField(target, "quotaObjects", quotaObjects);
+        }
+    }
+
+    @Test
+    void rejectsUploadsOverTheQuotaAndReleasesDeletedImages() {
+        StorageQuotaService target = AopTestUtils.getTargetObject(storageQuotaService);
+        long quotaObjects = (long) ReflectionTestUtils.getField(target, "quotaObjects");
+        ReflectionTestUtils.setField(target, "quotaObjects", 1L);
+        try {
+            MockMultipartFile image = TestImages.png("first.png");
+            imageService.save(image, galleryId, userId);
+            assertThrows(StorageQuotaExceededException.class,
+                    () -> imageService.save(TestImages.png("second.png"), galleryId, userId));
+            storageQuotaService.flush();
+            assertEquals(1, usage().getStorageObjects());
+            assertEquals(image.getSize(), usage().getStorageBytes());
+
+            imageService.deleteImage(userId, galleryId, "first.png");
+            storageQuotaService.flush();
+            assertEquals(0, usage().getStorageObjects());
+            assertEquals(0, usage().getStorageBytes());
+        } finally {
+            ReflectionTestUtils.setField(target, "quotaObjects", quotaObjects);
+        }
+    }
+
+    @Test
+    void savingAUserKeepsTheUsageOfAConcurrentUpload() {
+        MockMultipartFile image = TestImages.png("raced.png");
+
+        TransactionTemplate upload = new TransactionTemplate(transactionManager);
+        upload.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // like the rehash on login, the user is saved as it was loaded before the upload committed
+            User user = userRepository.findById(userId).get();
+            upload.executeWithoutResult(inner -> imageService.save(image, galleryId, userId));
+            userRepository.saveAndFlush(user.setPassword(user.getPassword() + "-rehashed"));
+        });
+        storageQuotaService.flush();
+
+        assertEquals(1, usage().getStorageObjects());
+        assertEquals(image.getSize(), usage().getStorageBytes());
+
+        imageService.deleteImage(userId, galleryId, "raced.png");
+    }
+
+    @Test
+    void repairCountsImagesThatWereNeverCounted() {
+        MockMultipartFile image = TestImages.png("counted.png");
+        imageService.save(image, galleryId, userId);
+        storageQuotaService.flush();
+        // as for the images uploaded before the quota existed
+        jdbcTemplate.update("update users set storage_bytes = 0, storage_objects = 0 where id = ?", userId);
+
+        storageQuotaService.repairAll();
+
+        assertEquals(1, usage().getStorageObjects());
+        assertEquals(image.getSize(), usage().getStorageBytes());
+
+        imageService.deleteImage(userId, galleryId, "counted.png");
+    }
+
+    @Test
+    void flushPicksUpTheUploadsOfOtherInstances() {
+        StorageQuotaService target = AopTestUtils.getTargetObject(storageQuotaService);
+        long quotaObjects = (long) ReflectionTestUtils.getField(target, "quotaObjects");
+        ReflectionTestUtils.setField(target, "quotaObjects", 2L);
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            storageQuotaService.checkAvailable(userId, 10);
+            // as uploaded to another instance at the same time
+            jdbcTemplate.update("update users set storage_bytes = 20, storage_objects = 2 where id = ?", userId);
+            transaction.executeWithoutResult(status -> storageQuotaService.reserve(userId, 10));
+
+            storageQuotaService.flush();
+
+            // the image exists, so it is counted although it didn't fit
+            assertEquals(3, usage().getStorageObjects());
+            assertEquals(30, usage().getStorageBytes());
+            assertThrows(StorageQuotaExceededException.class, () -> storageQuotaService.checkAvailable(userId, 10));
+        } finally {
+            ReflectionTestUtils.setField(target, "quotaObjects", quotaObjects);
+        }
+    }
+
+    private UserRepository.StorageUsage usage() {
+        return userRepository.findStorageUsageById(userId).get();
+    }
+}
@@ -0,0 +1,72 @@
+package com.mine.gallery.service;
+
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.security.UserDetailsServiceImpl;
+import com.mine.gallery.support.TestUser;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the user summaries and login details are served from the cache
+ * and evicted when the roles of the user change.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class UserCacheTest {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private TestUser user;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        user = TestUser.signUp(userService, userRepository, "cached");
+        userId = user.getId();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void servesRepeatedLookupsFromTheCache() {
+        userService.getUserById(userId);
+        userDetailsService.loadUserByUsername(user.getUsername());
+        statistics.clear();
+
+        assertNotNull(userService.getUserById(userId));
+        assertNotNull(userDetailsService.loadUserByUsername(user.getUsername()).getPassword());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void evictsWhenRolesChange() {
+        userService.setAdmin(userId);
+        assertEquals(1, userService.getUserById(userId).getRoles().size());
+        assertEquals(1, userDetailsService.loadUserByUsername(user.getUsername()).getAuthorities().size());
+
+        userService.removeAdmin(userId);
+
+        assertTrue(userService.getUserById(userId).getRoles().isEmpty());
+        assertTrue(userDetailsService.loadUserByUsername(user.getUsername()).getAuthorities().isEmpty());
+    }
+}
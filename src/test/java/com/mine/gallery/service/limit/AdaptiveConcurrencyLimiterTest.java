@@ -0,0 +1,73 @@
+package com.mine.gallery.service.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the {@link AdaptiveConcurrencyLimiter} grows while the latency holds,
+ * shrinks once it rises and rejects the calls above the limit.
+ *
+ * @author TrusTio
+ */
+class AdaptiveConcurrencyLimiterTest {
+    private long now;
+
+    @Test
+    void rejectsCallsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.5, 0.2);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire().orElseThrow(AssertionError::new);
+        assertTrue(limiter.tryAcquire().isPresent());
+        assertFalse(limiter.tryAcquire().isPresent());
+        assertEquals(2, limiter.getInFlight());
+
+        first.release();
+        first.release();
+        assertEquals(1, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire().isPresent());
+    }
+
+    @Test
+    void growsWhileLatencyHolds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 4, 100, 1.5, 0.2);
+
+        runAtLimit(limiter, 50, 10);
+
+        assertEquals(100, limiter.getLimit());
+    }
+
+    @Test
+    void shrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 4, 50, 1.5, 0.2);
+        runAtLimit(limiter, 50, 10);
+        assertEquals(50, limiter.getLimit());
+
+        runAtLimit(limiter, 20, 40);
+
+        // settles where the growth of the square root balances the shrinking
+        assertTrue(limiter.getLimit() <= 10);
+    }
+
+    /**
+     * Fills the limit and releases every call after the given latency, for the given number of rounds.
+     */
+    private void runAtLimit(AdaptiveConcurrencyLimiter limiter, int rounds, long latencyMillis) {
+        for (int round = 0; round < rounds; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            AdaptiveConcurrencyLimiter.Permit permit;
+            while ((permit = limiter.tryAcquire(now).orElse(null)) != null) {
+                permits.add(permit);
+            }
+
+            now += TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+            permits.forEach(p -> p.release(now));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mine.gallery.service.limit;
+
+import com.mine.gallery.exception.generic.ServiceOverloadedException;
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.GalleryService;
+import com.mine.gallery.service.ImageService;
+import com.mine.gallery.service.ListingVersions;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.service.dto.GalleryDTO;
+import com.mine.gallery.service.limit.ConcurrencyLimitAspect.CallClass;
+import com.mine.gallery.support.TestImages;
+import com.mine.gallery.support.TestUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifies that the image service calls are limited per class, so saturated uploads don't reject the reads.
+ *
+ * @author TrusTio
+ */
+@SpringBootTest
+class ConcurrencyLimitAspectTest {
+    @Autowired
+    private ConcurrencyLimitAspect concurrencyLimitAspect;
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private ListingVersions listingVersions;
+    @Autowired
+    private GalleryService galleryService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void saturatedUploadsDontRejectReads() {
+        Long userId = TestUser.signUp(userService, userRepository, "limited").getId();
+        GalleryDTO gallery = new GalleryDTO().setName("limited").setUserId(userId);
+        Long galleryId = galleryService.create(gallery, new BeanPropertyBindingResult(gallery, "galleryDTO")).getId();
+
+        @SuppressWarnings("unchecked")
+        Map<CallClass, AdaptiveConcurrencyLimiter> limiters =
+                (Map<CallClass, AdaptiveConcurrencyLimiter>) ReflectionTestUtils.getField(concurrencyLimitAspect, "limiters");
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        try {
+            Optional<AdaptiveConcurrencyLimiter.Permit> permit;
+            while ((permit = limiters.get(CallClass.UPLOAD).tryAcquire()).isPresent()) {
+                permits.add(permit.get());
+            }
+
+            assertThrows(ServiceOverloadedException.class,
+                    () -> imageService.save(TestImages.png("rejected.png"), galleryId, userId));
+            assertEquals(0, imageService.getUserImages(0, 10, "id", userId, listingVersions.current(userId))
+                    .getItems().size());
+        } finally {
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+        }
+    }
+
+    @Test
+    void classifiesTheCalls() {
+        assertEquals(CallClass.UPLOAD, ConcurrencyLimitAspect.classify("save"));
+        assertEquals(CallClass.READ, ConcurrencyLimitAspect.classify("findSignedImage"));
+        assertEquals(CallClass.READ, ConcurrencyLimitAspect.classify("getUserGalleryImages"));
+        assertEquals(CallClass.MODIFY, ConcurrencyLimitAspect.classify("deleteImages"));
+    }
+}
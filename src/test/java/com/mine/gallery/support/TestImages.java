@@ -0,0 +1,36 @@
+package com.mine.gallery.support;
+
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Small PNG images to be uploaded by the tests.
+ *
+ * @author TrusTio
+ */
+public final class TestImages {
+
+    private TestImages() {
+    }
+
+    /**
+     * @param name String original file name of the upload
+     * @return MockMultipartFile with a 64x48 PNG image
+     */
+    public static MockMultipartFile png(String name) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xff8800);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new MockMultipartFile("image", name, "image/png", content.toByteArray());
+    }
+}
@@ -0,0 +1,53 @@
+package com.mine.gallery.support;
+
+import com.mine.gallery.persistence.repository.UserRepository;
+import com.mine.gallery.service.UserService;
+import com.mine.gallery.service.dto.SignupUserDTO;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A user signed up for a single test. The tests share the application context and its database,
+ * so every test works on a user of its own, named after a prefix and a number counted in the test run.
+ *
+ * @author TrusTio
+ */
+public final class TestUser {
+    public static final String PASSWORD = "Password1!";
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final Long id;
+    private final String username;
+
+    private TestUser(Long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    /**
+     * Signs up a new user with the {@link #PASSWORD}.
+     *
+     * @param prefix String start of the username, up to 14 characters
+     * @return TestUser the signed up user
+     */
+    public static TestUser signUp(UserService userService, UserRepository userRepository, String prefix) {
+        String username = prefix + SEQUENCE.incrementAndGet();
+        SignupUserDTO user = new SignupUserDTO()
+                .setUsername(username)
+                .setEmail(username + "@mail.com")
+                .setPassword(PASSWORD);
+        userService.signUp(user, new BeanPropertyBindingResult(user, "signupUserDTO"));
+
+        return new TestUser(userRepository.findByUsername(username).get().getId(), username);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
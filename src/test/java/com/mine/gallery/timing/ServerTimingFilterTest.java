@@ -0,0 +1,65 @@
+package com.mine.gallery.timing;
+
+import com.mine.gallery.security.IdUsernamePasswordAuthenticationToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifies that the {@link ServerTimingFilter} only returns the Server-Timing header
+ * to admins that asked for it.
+ *
+ * @author TrusTio
+ */
+class ServerTimingFilterTest {
+    private final ServerTimingFilter filter = new ServerTimingFilter();
+
+    @Test
+    void returnsTheTimingToAdminsThatAskForIt() throws Exception {
+        assertNotNull(filter(true, "ROLE_ADMIN", false).getHeader(ServerTiming.HEADER));
+        assertNotNull(filter(true, "ROLE_ADMIN", true).getHeader(ServerTiming.HEADER));
+    }
+
+    @Test
+    void hidesTheTimingFromOtherRequests() throws Exception {
+        assertNull(filter(false, "ROLE_ADMIN", false).getHeader(ServerTiming.HEADER));
+        assertNull(filter(true, "ROLE_USER", false).getHeader(ServerTiming.HEADER));
+        assertNull(filter(true, null, false).getHeader(ServerTiming.HEADER));
+    }
+
+    private MockHttpServletResponse filter(boolean optIn, String role, boolean emptyBody) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/1/galleries");
+        if (optIn) {
+            request.addHeader(ServerTiming.REQUEST_HEADER, "true");
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // like the security filters, the authentication only lives as long as the chain
+        FilterChain chain = (req, res) -> {
+            if (role != null) {
+                SecurityContextHolder.getContext().setAuthentication(new IdUsernamePasswordAuthenticationToken(
+                        1L, "timed", 1L, Collections.singletonList(new SimpleGrantedAuthority(role))));
+            }
+            try {
+                if (emptyBody) {
+                    ((HttpServletResponse) res).setStatus(304);
+                } else {
+                    res.getWriter().write("[]");
+                }
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
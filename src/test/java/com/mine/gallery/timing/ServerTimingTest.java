@@ -0,0 +1,62 @@
+package com.mine.gallery.timing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the {@link ServerTiming} adds up the stages and the allocations
+ * of the request, including the work done on other threads.
+ *
+ * @author TrusTio
+ */
+class ServerTimingTest {
+
+    @Test
+    void rendersStagesAndTotal() {
+        ServerTiming timing = new ServerTiming();
+        ServerTiming.Segment segment = timing.attach();
+        try {
+            ServerTiming.record(ServerTiming.DB, TimeUnit.MILLISECONDS.toNanos(2));
+            ServerTiming.record(ServerTiming.DB, TimeUnit.MILLISECONDS.toNanos(1));
+            ServerTiming.record(ServerTiming.AUTH, TimeUnit.MICROSECONDS.toNanos(500));
+        } finally {
+            segment.detach();
+        }
+
+        String header = timing.toHeader();
+        assertTrue(header.startsWith("db;dur=3.0;desc=\"2 calls\", auth;dur=0.5, "), header);
+        assertTrue(header.contains("total;dur="), header);
+        assertNull(ServerTiming.current());
+    }
+
+    @Test
+    void countsAllocationsOfPropagatedTasks() {
+        ServerTiming timing = new ServerTiming();
+        ServerTiming.Segment segment = timing.attach();
+        try {
+            CompletableFuture.runAsync(ServerTiming.propagate(() -> {
+                ServerTiming.record(ServerTiming.THUMBNAIL, 1);
+                byte[][] garbage = new byte[64][];
+                for (int i = 0; i < garbage.length; i++) {
+                    garbage[i] = new byte[64 * 1024];
+                }
+            })).join();
+        } finally {
+            segment.detach();
+        }
+
+        String header = timing.toHeader();
+        assertTrue(header.startsWith("thumbnail;dur=0.0"), header);
+        Matcher alloc = Pattern.compile("alloc;desc=\"(\\d+)\"").matcher(header);
+        if (alloc.find()) {
+            assertTrue(Long.parseLong(alloc.group(1)) >= 64 * 64 * 1024, header);
+        }
+    }
+}